@@ -0,0 +1,101 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.benchmark.compiler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.apidesign.vm4brwsr.Bck2Brwsr;
+import static org.testng.Assert.*;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Compiles growing parts of the compact emulation library. The time
+ * of each test is reported by the benchmark, the time per class shall
+ * not grow with the number of classes.
+ */
+public class CompileTimeTest {
+    private List<String> all;
+
+    @BeforeClass public void warmUp() throws Exception {
+        all = listClasses();
+        assertTrue(all.size() > 200, "Enough classes found: " + all.size());
+        compile(all.subList(0, all.size() / 4));
+    }
+
+    @Test public void compileQuarter() throws Exception {
+        compile(all.subList(0, all.size() / 4));
+    }
+
+    @Test public void compileHalf() throws Exception {
+        compile(all.subList(0, all.size() / 2));
+    }
+
+    @Test public void compileWhole() throws Exception {
+        compile(all);
+    }
+
+    private static void compile(List<String> classes) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        Bck2Brwsr.newCompiler().
+            resources(new EmulationResources()).
+            addClasses(classes.toArray(new String[classes.size()])).
+            generate(sb);
+        assertTrue(sb.indexOf("CLS.$class.jvmName = ") >= 0, "Some classes generated");
+    }
+
+    private static List<String> listClasses() throws IOException {
+        URL u = CompileTimeTest.class.getClassLoader().getResource(
+            "org/apidesign/bck2brwsr/emul/reflect/ProxyImpl.class"
+        );
+        assertNotNull(u, "Emulation library found");
+        JarFile jar = ((JarURLConnection) u.openConnection()).getJarFile();
+        List<String> arr = new ArrayList<>();
+        Enumeration<JarEntry> en = jar.entries();
+        while (en.hasMoreElements()) {
+            String n = en.nextElement().getName();
+            if (n.endsWith(".class") && !n.contains("$")) {
+                arr.add(n.substring(0, n.length() - 6));
+            }
+        }
+        Collections.sort(arr);
+        return arr;
+    }
+
+    private static final class EmulationResources implements Bck2Brwsr.Resources {
+        @Override
+        public InputStream get(String name) throws IOException {
+            Enumeration<URL> en = CompileTimeTest.class.getClassLoader().getResources(name);
+            URL u = null;
+            while (en.hasMoreElements()) {
+                u = en.nextElement();
+            }
+            if (u == null || u.toExternalForm().contains("lib/rt.jar!")) {
+                return null;
+            }
+            return u.openStream();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.benchmark.compiler;
+
+import javax.script.Invocable;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import org.apidesign.vm4brwsr.Bck2Brwsr;
+import static org.testng.Assert.*;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Runs call heavy loops compiled with and without
+ * {@link Bck2Brwsr#hoistClasses(boolean) hoisting} of class references.
+ * The time of each test is reported by the benchmark.
+ */
+public class HoistClassesTest {
+    private static final int N = 1000000;
+    private Invocable plain;
+    private Invocable hoisted;
+
+    @BeforeClass public void compile() throws Exception {
+        plain = compile(false);
+        hoisted = compile(true);
+        // warm up
+        for (int i = 0; i < 3; i++) {
+            run(plain, "calls", N);
+            run(hoisted, "calls", N);
+            run(plain, "allocate", N);
+            run(hoisted, "allocate", N);
+        }
+    }
+
+    @Test public void callsPlain() throws Exception {
+        assertEquals(run(plain, "calls", N), CallHeavy.calls(N));
+    }
+
+    @Test public void callsHoisted() throws Exception {
+        assertEquals(run(hoisted, "calls", N), CallHeavy.calls(N));
+    }
+
+    @Test public void allocatePlain() throws Exception {
+        assertEquals(run(plain, "allocate", N), CallHeavy.allocate(N));
+    }
+
+    @Test public void allocateHoisted() throws Exception {
+        assertEquals(run(hoisted, "allocate", N), CallHeavy.allocate(N));
+    }
+
+    private static Invocable compile(boolean hoist) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Bck2Brwsr.newCompiler().
+            resources(HoistClassesTest.class.getClassLoader(), true).
+            addRootClasses(CallHeavy.class.getName().replace('.', '/')).
+            hoistClasses(hoist).
+            generate(sb);
+        ScriptEngine js = new ScriptEngineManager().getEngineByExtension("js");
+        js.eval(sb.toString());
+        return (Invocable) js;
+    }
+
+    private static int run(Invocable js, String method, int n) throws Exception {
+        Object vm = js.invokeFunction("bck2brwsr");
+        Object clazz = js.invokeMethod(vm, "loadClass", CallHeavy.class.getName());
+        Object res = js.invokeMethod(clazz, "invoke", method, n);
+        return ((Number) res).intValue();
+    }
+}
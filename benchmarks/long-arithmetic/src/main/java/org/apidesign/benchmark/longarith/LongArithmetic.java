@@ -0,0 +1,65 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.benchmark.longarith;
+
+/** Typical workloads spending their time in 64-bit arithmetic.
+ */
+public final class LongArithmetic {
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private LongArithmetic() {
+    }
+
+    /** Linear congruential generator as used by {@code java.util.Random}.
+     */
+    public static long random(long seed, int count) {
+        long s = (seed ^ MULTIPLIER) & MASK;
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            s = (s * MULTIPLIER + ADDEND) & MASK;
+            int next = (int) (s >>> 16);
+            sum += next % 1000;
+        }
+        return sum;
+    }
+
+    /** 64-bit FNV-1a hash of the first count bytes.
+     */
+    public static long hash(int count) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < count; i++) {
+            h ^= (i & 0xff);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /** Splits millisecond timestamps into days and hours.
+     */
+    public static long timestamps(long start, int count) {
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            long t = start + i * 37L;
+            sum += t / DAY + (t % DAY) / 3600000L;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.benchmark.longarith;
+
+import org.apidesign.bck2brwsr.vmtest.Compare;
+import org.apidesign.bck2brwsr.vmtest.VMTest;
+import org.testng.annotations.Factory;
+
+public class LongArithmeticTest {
+    public LongArithmeticTest() {
+    }
+
+    @Compare(scripting = false)
+    public long oneIteration() {
+        return LongArithmetic.random(42, 1)
+            + LongArithmetic.hash(1)
+            + LongArithmetic.timestamps(1449000123456L, 1);
+    }
+
+    @Compare(scripting = false)
+    public long randomIterations() {
+        return LongArithmetic.random(42, 100000);
+    }
+
+    @Compare(scripting = false)
+    public long hashIterations() {
+        return LongArithmetic.hash(100000);
+    }
+
+    @Compare(scripting = false)
+    public long timestampIterations() {
+        return LongArithmetic.timestamps(1449000123456L, 100000);
+    }
+
+    @Factory
+    public static Object[] create() {
+        return VMTest.create(LongArithmeticTest.class);
+    }
+}
@@ -33,25 +33,35 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
+import java.util.WeakHashMap;
+import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 import org.apidesign.bck2brwsr.launcher.InvocationContext.Resource;
 import org.glassfish.grizzly.PortRange;
 import org.glassfish.grizzly.http.server.HttpHandler;
@@ -76,12 +86,16 @@ import org.glassfish.grizzly.websockets.WebSocketEngine;
 abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<HttpServer> {
     static final Logger LOG = Logger.getLogger(BaseHTTPLauncher.class.getName());
     private static final InvocationContext END = new InvocationContext(null, null, null);
-    private final Set<ClassLoader> loaders = new LinkedHashSet<ClassLoader>();
-    private final BlockingQueue<InvocationContext> methods = new LinkedBlockingQueue<InvocationContext>();
+    private final CopyOnWriteArrayList<ClassLoader> loaders = new CopyOnWriteArrayList<ClassLoader>();
+    private final BlockingDeque<InvocationContext> methods = new LinkedBlockingDeque<InvocationContext>();
     private long timeOut;
     private final Res resources = new Res();
     private final String cmd;
-    private Object[] brwsr;
+    private final List<Object[]> brwsrs = new CopyOnWriteArrayList<Object[]>();
+    private final List<HttpServer> servers = new CopyOnWriteArrayList<HttpServer>();
+    private final List<Classes> classes = new CopyOnWriteArrayList<Classes>();
+    private final GeneratedVM generated = new GeneratedVM();
+    private final Artifacts artifacts = new Artifacts();
     private HttpServer server;
     private CountDownLatch wait;
     
@@ -93,7 +107,7 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
     
     @Override
     InvocationContext runMethod(InvocationContext c) throws IOException {
-        loaders.add(c.clazz.getClassLoader());
+        addClassLoader(c.clazz.getClassLoader());
         methods.add(c);
         try {
             c.await(timeOut);
@@ -108,7 +122,7 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
     }
     
     public void addClassLoader(ClassLoader url) {
-        this.loaders.add(url);
+        this.loaders.addIfAbsent(url);
     }
     
     ClassLoader[] loaders() {
@@ -196,7 +210,10 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
             vm.addDocRoot(path);
         }
         if (addClasses) {
-            conf.addHttpHandler(new Classes(resources), "/classes/");
+            Classes c = new Classes(resources, artifacts);
+            classes.add(c);
+            conf.addHttpHandler(c, "/classes/");
+            conf.addHttpHandler(artifacts, Artifacts.PREFIX);
         }
         final WebSocketAddOn addon = new WebSocketAddOn();
         for (NetworkListener listener : s.getListeners()) {
@@ -211,10 +228,29 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
         return s;
     }
     
-    private static int resourcesCount;
+    private static final AtomicInteger resourcesCount = new AtomicInteger();
     private void executeInBrowser() throws InterruptedException, URISyntaxException, IOException {
-        wait = new CountDownLatch(1);
-        server = initServer(".", true, "");
+        final int cnt = Math.max(1, sessions());
+        wait = new CountDownLatch(cnt);
+        for (int i = 0; i < cnt; i++) {
+            HttpServer s = initServer(".", true, "");
+            if (i == 0) {
+                server = s;
+            }
+            registerSession(s);
+            Object[] b = launchServerAndBrwsr(s, "/execute");
+            servers.add(s);
+            brwsrs.add(b);
+        }
+    }
+
+    /** Registers handlers for a browser session executing test cases. Each
+     * session runs on its own server (and thus origin), so HTTP resources
+     * of cases executed in parallel don't clash. The sessions take the
+     * cases from the shared {@link #methods} queue whenever they are done
+     * with the previous one.
+     */
+    private void registerSession(final HttpServer server) {
         final ServerConfiguration conf = server.getServerConfiguration();
         
         class DynamicResourceHandler extends HttpHandler {
@@ -257,7 +293,7 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
                     String mangle = cnt.replace("%20", " ").replace("%0A", "\n");
                     ByteArrayInputStream is = new ByteArrayInputStream(mangle.getBytes("UTF-8"));
                     URI url;
-                    final Resource res = new Resource(is, mimeType, "/dynamic/res" + ++resourcesCount, params.toArray(new String[params.size()]));
+                    final Resource res = new Resource(is, mimeType, "/dynamic/res" + resourcesCount.incrementAndGet(), params.toArray(new String[params.size()]));
                     if (webSocket) {
                         url = registerWebSocket(res);
                     } else {
@@ -331,21 +367,26 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
             DynamicResourceHandler prev;
             @Override
             public void service(Request request, Response response) throws Exception {
-                String id = request.getParameter("request");
-                String value = request.getParameter("result");
-                if (value != null && value.indexOf((char)0xC5) != -1) {
-                    value = toUTF8(value);
-                }
-                
+                String[] ids = request.getParameterValues("request");
+                String[] values = request.getParameterValues("result");
+                String batch = request.getParameter("batch");
+                int batchSize = batch == null ? 0 : Integer.parseInt(batch);
                 
                 InvocationContext mi = null;
                 int caseNmbr = -1;
                 
-                if (id != null && value != null) {
-                    LOG.log(Level.INFO, "Received result for case {0} = {1}", new Object[]{id, value});
-                    value = decodeURL(value);
-                    int indx = Integer.parseInt(id);
-                    cases.get(indx).result(value, null);
+                if (ids != null && values != null && ids.length > 0) {
+                    int indx = -1;
+                    for (int i = 0; i < ids.length && i < values.length; i++) {
+                        String value = values[i];
+                        if (value.indexOf((char)0xC5) != -1) {
+                            value = toUTF8(value);
+                        }
+                        LOG.log(Level.INFO, "Received result for case {0} = {1}", new Object[]{ids[i], value});
+                        value = decodeURL(value);
+                        indx = Integer.parseInt(ids[i]);
+                        cases.get(indx).result(value, null);
+                    }
                     if (++indx < cases.size()) {
                         mi = cases.get(indx);
                         LOG.log(Level.INFO, "Re-executing case {0}", indx);
@@ -364,6 +405,8 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
                     caseNmbr = cnt++;
                 }
                 if (mi == END) {
+                    // let the other sessions finish as well
+                    methods.offer(END);
                     response.getWriter().write("");
                     wait.countDown();
                     cnt = 0;
@@ -377,25 +420,73 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
                 prev = newRH;
                 conf.addHttpHandler(prev, "/dynamic");
                 
-                cases.add(mi);
+                if (batchSize > 0) {
+                    response.getWriter().write("[");
+                }
+                writeCase(response.getWriter(), mi, caseNmbr);
+                if (caseNmbr == cases.size()) {
+                    cases.add(mi);
+                    final int limit = batchLimit(batchSize, methods.size() + 1, sessions());
+                    while (cases.size() - caseNmbr < limit && isBatchable(mi)) {
+                        mi = methods.poll();
+                        if (mi == null) {
+                            break;
+                        }
+                        if (mi == END || !isBatchable(mi)) {
+                            methods.offerFirst(mi);
+                            break;
+                        }
+                        response.getWriter().write(", ");
+                        writeCase(response.getWriter(), mi, cnt);
+                        cases.add(mi);
+                        cnt++;
+                    }
+                }
+                if (batchSize > 0) {
+                    response.getWriter().write("]");
+                }
+            }
+
+            private void writeCase(Writer w, InvocationContext mi, int caseNmbr) throws IOException {
                 final String cn = mi.clazz.getName();
                 final String mn = mi.methodName;
                 LOG.log(Level.INFO, "Request for {0} case. Sending {1}.{2}", new Object[]{caseNmbr, cn, mn});
-                response.getWriter().write("{"
+                w.write("{"
                     + "className: '" + cn + "', "
                     + "methodName: '" + mn + "', "
                     + "request: " + caseNmbr
                 );
                 if (mi.html != null) {
-                    response.getWriter().write(", html: '");
-                    response.getWriter().write(encodeJSON(mi.html));
-                    response.getWriter().write("'");
+                    w.write(", html: '");
+                    w.write(encodeJSON(mi.html));
+                    w.write("'");
                 }
-                response.getWriter().write("}");
+                w.write("}");
             }
         }, "/data");
+    }
+    
+    /** Number of cases to send in one batch. When more sessions run in
+     * parallel, the pending cases are split among them, so the first
+     * session does not take all of them while the others stay idle.
+     *
+     * @param requested the size of batch the browser asked for
+     * @param pending number of cases waiting to be executed
+     * @param sessions number of browser sessions
+     * @return maximal number of cases to send
+     */
+    static int batchLimit(int requested, int pending, int sessions) {
+        if (sessions <= 1) {
+            return requested;
+        }
+        return Math.max(1, Math.min(requested, (pending + sessions - 1) / sessions));
+    }
 
-        this.brwsr = launchServerAndBrwsr(server, "/execute");
+    /** Can the case be sent to the browser together with others? Cases
+     * with an HTML fragment or HTTP resources are executed one by one.
+     */
+    private static boolean isBatchable(InvocationContext mi) {
+        return mi.html == null && mi.resources.isEmpty();
     }
     
     private static String encodeJSON(String in) {
@@ -439,7 +530,12 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
                 new Object[]{prev, methods.size()}
             );
         }
-        stopServerAndBrwsr(server, brwsr);
+        for (Classes c : classes) {
+            c.logStatistics();
+        }
+        for (int i = 0; i < servers.size(); i++) {
+            stopServerAndBrwsr(servers.get(i), brwsrs.get(i));
+        }
     }
     
     static void copyStream(InputStream is, OutputStream os, String baseURL, String... params) throws IOException {
@@ -580,11 +676,30 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
         }
     }
 
-    abstract void generateBck2BrwsrJS(StringBuilder sb, Res loader) throws IOException;
+    /** Number of browser sessions to execute test cases in parallel.
+     * @return one by default
+     */
+    int sessions() {
+        return 1;
+    }
+
+    abstract void generateBck2BrwsrJS(Appendable out, Res loader) throws IOException;
     abstract String harnessResource();
     Object compileJar(URL jar, URL precompiled) throws IOException {
         return null;
     }
+    /** Identifies the input of {@link #generateBck2BrwsrJS}. The generated
+     * script is kept and served again as long as the identification
+     * doesn't change.
+     *
+     * @param loader the resources
+     * @return a string that changes whenever the generated script would
+     *   change, or <code>null</code> to generate the script on each request
+     * @throws IOException if something goes wrong
+     */
+    String vmFingerprint(Res loader) throws IOException {
+        return null;
+    }
     String compileFromClassPath(URL f, Res loader) throws IOException {
         return null;
     }
@@ -600,9 +715,25 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
     }
 
     final class Res {
-        private final Set<URL> ignore = new HashSet<URL>();
+        private final Set<String> ignore = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        /** resources found so far, each valid for the first {@link Found#loaders} loaders */
+        private final ConcurrentMap<String, Found> index = new ConcurrentHashMap<String, Found>();
+        
+        /** precompiled versions of JARs, valid while there are {@link #scanned} loaders */
+        private Map<String, URL> precompiled;
+        private int scanned = -1;
         
         Object compileJar(URL jarURL) throws IOException {
+            URL pre = precompiledJars().get(jarURL.toExternalForm());
+            Object ret = BaseHTTPLauncher.this.compileJar(jarURL, pre);
+            ignore.add(jarURL.toExternalForm());
+            return ret;
+        }
+        
+        private synchronized Map<String, URL> precompiledJars() throws IOException {
+            if (precompiled != null && scanned == loaders.size()) {
+                return precompiled;
+            }
             List<String[]> libraries = new ArrayList<String[]>();
             for (ClassLoader loader : loaders) {
                 Enumeration<URL> en = loader.getResources("META-INF/MANIFEST.MF");
@@ -626,7 +757,7 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
                     }
                 }
             }
-            URL precompiled = null;
+            Map<String, URL> found = new HashMap<String, URL>();
             for (ClassLoader loader : loaders) {
                 for (String[] lib : libraries) {
                     final String res = "META-INF/maven/" + lib[1] + "/" + lib[0] + "/pom.properties";
@@ -640,17 +771,15 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
                         if (lib[2].equals(load.getProperty("version"))) {
                             if (c instanceof JarURLConnection) {
                                 final URL definedInURL = ((JarURLConnection)c).getJarFileURL();
-                                if (definedInURL.equals(jarURL)) {
-                                    precompiled = loader.getResource(lib[3]);
-                                }
+                                found.put(definedInURL.toExternalForm(), loader.getResource(lib[3]));
                             }
                         }
                     }
                 }
             }
-            Object ret = BaseHTTPLauncher.this.compileJar(jarURL, precompiled);
-            ignore.add(jarURL);
-            return ret;
+            precompiled = found;
+            scanned = loaders.size();
+            return found;
         }
         String compileFromClassPath(URL f) throws IOException {
             return BaseHTTPLauncher.this.compileFromClassPath(f, this);
@@ -660,13 +789,10 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
                 return getResource(resource, skip);
             }
             URL u = null;
-            for (ClassLoader l : loaders) {
-                Enumeration<URL> en = l.getResources(resource);
-                while (en.hasMoreElements()) {
-                    u = en.nextElement();
-                    if (u.toExternalForm().matches("^.*emul.*rt\\.jar.*$")) {
-                        return u;
-                    }
+            for (Found.Entry e : find(resource)) {
+                u = e.url;
+                if (e.emul) {
+                    return u;
                 }
             }
             if (u != null) {
@@ -679,28 +805,214 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
             throw new IOException("Can't find " + resource);
         }
         private URL getResource(String resource, int skip) throws IOException {
-            for (ClassLoader l : loaders) {
-                Enumeration<URL> en = l.getResources(resource);
-                while (en.hasMoreElements()) {
-                    final URL now = en.nextElement();
-                    if (now.toExternalForm().contains("sisu-inject-bean")) {
-                        // certainly we don't want this resource, as that
-                        // module is not compiled with target 1.6, currently
-                        continue;
-                    }
-                    if (now.getProtocol().equals("jar")) {
-                        JarURLConnection juc = (JarURLConnection) now.openConnection();
-                        if (now.getFile().endsWith(".class") && ignore.contains(juc.getJarFileURL())) {
-                            continue;
-                        }
-                    }
-                    if (--skip < 0) {
-                        return now;
-                    }
+            for (Found.Entry e : find(resource)) {
+                if (e.url.toExternalForm().contains("sisu-inject-bean")) {
+                    // certainly we don't want this resource, as that
+                    // module is not compiled with target 1.6, currently
+                    continue;
+                }
+                if (e.jar != null && e.url.getFile().endsWith(".class") && ignore.contains(e.jar)) {
+                    continue;
+                }
+                if (--skip < 0) {
+                    return e.url;
                 }
             }
             throw new IOException("Not found (anymore of) " + resource);
         }
+        /** Finds all occurrences of a resource. Each resource is looked up
+         * in each class loader just once, the result is indexed and only
+         * extended with results of class loaders added later.
+         */
+        private Found.Entry[] find(String resource) throws IOException {
+            final ClassLoader[] all = loaders();
+            Found f = index.get(resource);
+            if (f != null && f.loaders == all.length) {
+                return f.entries;
+            }
+            List<Found.Entry> entries = new ArrayList<Found.Entry>();
+            int from = 0;
+            if (f != null) {
+                entries.addAll(Arrays.asList(f.entries));
+                from = f.loaders;
+            }
+            for (int i = from; i < all.length; i++) {
+                Enumeration<URL> en = all[i].getResources(resource);
+                while (en.hasMoreElements()) {
+                    entries.add(new Found.Entry(en.nextElement()));
+                }
+            }
+            f = new Found(all.length, entries.toArray(new Found.Entry[entries.size()]));
+            index.put(resource, f);
+            return f.entries;
+        }
+    }
+
+    /** Occurrences of a resource in the first {@link #loaders} class loaders.
+     */
+    private static final class Found {
+        final int loaders;
+        final Entry[] entries;
+
+        Found(int loaders, Entry[] entries) {
+            this.loaders = loaders;
+            this.entries = entries;
+        }
+
+        static final class Entry {
+            final URL url;
+            /** external form of the JAR file the URL points into or <code>null</code> */
+            final String jar;
+            /** is the URL from the emulation library? */
+            final boolean emul;
+
+            Entry(URL url) {
+                this.url = url;
+                String jarFile = null;
+                if (url.getProtocol().equals("jar")) {
+                    final String file = url.getFile();
+                    int sep = file.indexOf("!/");
+                    jarFile = sep == -1 ? file : file.substring(0, sep);
+                }
+                this.jar = jarFile;
+                this.emul = url.toExternalForm().matches("^.*emul.*rt\\.jar.*$");
+            }
+        }
+    }
+
+    /** Minimal size of a response worth compressing */
+    private static final int COMPRESS_LIMIT = 1024;
+
+    static byte[] gzip(byte[] plain) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(os);
+        gzip.write(plain);
+        gzip.close();
+        return os.toByteArray();
+    }
+
+    /** Sends the bytes, compressed when the client accepts gzip.
+     *
+     * @param gzipped compressed version of <code>plain</code> or <code>null</code>
+     *   to compress on demand
+     */
+    static void send(Request request, Response response, byte[] plain, byte[] gzipped) throws IOException {
+        byte[] data = plain;
+        response.setHeader(Header.Vary, "Accept-Encoding");
+        String accept = request.getHeader("Accept-Encoding");
+        if (accept != null && accept.contains("gzip") && plain.length >= COMPRESS_LIMIT) {
+            data = gzipped != null ? gzipped : gzip(plain);
+            response.setHeader(Header.ContentEncoding, "gzip");
+        }
+        response.setContentLength(data.length);
+        OutputStream os = response.getOutputStream();
+        os.write(data);
+        os.close();
+    }
+
+    static void send(Request request, Response response, CharSequence text) throws IOException {
+        send(request, response, text.toString().getBytes("UTF-8"), null);
+    }
+
+    /** Generated script stored under a name derived from its content.
+     */
+    private static final class Artifact {
+        final byte[] plain;
+        final String hash;
+        private byte[] gzipped;
+
+        Artifact(byte[] plain) throws IOException {
+            this.plain = plain;
+            try {
+                MessageDigest md = MessageDigest.getInstance("SHA-1");
+                StringBuilder sb = new StringBuilder();
+                for (byte b : md.digest(plain)) {
+                    sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+                    sb.append(Character.forDigit(b & 0xf, 16));
+                }
+                this.hash = sb.toString();
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IOException(ex);
+            }
+        }
+
+        synchronized byte[] gzipped() throws IOException {
+            if (gzipped == null) {
+                gzipped = gzip(plain);
+            }
+            return gzipped;
+        }
+    }
+
+    /** Serves libraries compiled from JARs and classpath directories under
+     * URLs derived from their content. The content of such URL never
+     * changes and browsers may keep it as long as they wish.
+     */
+    private static final class Artifacts extends HttpHandler {
+        static final String PREFIX = "/artifacts/";
+        private final Map<String, Artifact> byHash = new ConcurrentHashMap<String, Artifact>();
+        private final Map<String, Artifact> byScript = Collections.synchronizedMap(new WeakHashMap<String, Artifact>());
+        private final Map<String, Artifact> byURL = new ConcurrentHashMap<String, Artifact>();
+
+        String register(String script) throws IOException {
+            Artifact a = byScript.get(script);
+            if (a == null) {
+                a = register(script.getBytes("UTF-8"));
+                byScript.put(script, a);
+            }
+            return PREFIX + a.hash + ".js";
+        }
+
+        String register(URL precompiled) throws IOException {
+            final String key = precompiled.toExternalForm();
+            Artifact a = byURL.get(key);
+            if (a == null) {
+                InputStream is = precompiled.openStream();
+                try {
+                    a = register(Classes.readBytes(is));
+                } finally {
+                    is.close();
+                }
+                byURL.put(key, a);
+            }
+            return PREFIX + a.hash + ".js";
+        }
+
+        private Artifact register(byte[] plain) throws IOException {
+            Artifact a = new Artifact(plain);
+            Artifact prev = byHash.get(a.hash);
+            if (prev != null) {
+                return prev;
+            }
+            byHash.put(a.hash, a);
+            return a;
+        }
+
+        @Override
+        public void service(Request request, Response response) throws Exception {
+            String name = request.getHttpHandlerPath();
+            if (name.startsWith("/")) {
+                name = name.substring(1);
+            }
+            if (name.endsWith(".js")) {
+                name = name.substring(0, name.length() - 3);
+            }
+            Artifact a = byHash.get(name);
+            if (a == null) {
+                response.sendError(404);
+                return;
+            }
+            final String etag = "\"" + a.hash + "\"";
+            response.setHeader(Header.ETag, etag);
+            response.setHeader(Header.CacheControl, "public, max-age=31536000, immutable");
+            if (etag.equals(request.getHeader("If-None-Match"))) {
+                response.setStatus(HttpStatus.NOT_MODIFIED_304);
+                return;
+            }
+            response.setCharacterEncoding("UTF-8");
+            response.setContentType("text/javascript");
+            send(request, response, a.plain, a.gzipped());
+        }
     }
 
     private static class Page extends HttpHandler {
@@ -765,6 +1077,16 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
         
     }
 
+    /** The bck2brwsr.js shared by all servers of the launcher.
+     */
+    private static final class GeneratedVM {
+        String fingerprint;
+        byte[] plain;
+        byte[] gzipped;
+        String etag;
+        long lastModified;
+    }
+
     private class VMAndPages extends StaticHttpHandler {
         private String vmResource;
         
@@ -775,26 +1097,219 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
         @Override
         public void service(Request request, Response response) throws Exception {
             if (request.getRequestURI().equals(vmResource)) {
+                String fp = vmFingerprint(BaseHTTPLauncher.this.resources);
+                if (fp != null) {
+                    serveCachedVM(fp, request, response);
+                    return;
+                }
                 response.setCharacterEncoding("UTF-8");
                 response.setContentType("text/javascript");
-                StringBuilder sb = new StringBuilder();
-                generateBck2BrwsrJS(sb, BaseHTTPLauncher.this.resources);
-                response.getWriter().write(sb.toString());
+                Writer w = response.getWriter();
+                generateBck2BrwsrJS(w, BaseHTTPLauncher.this.resources);
+                w.close();
             } else {
                 super.service(request, response);
             }
         }
 
+        private void serveCachedVM(String fp, Request request, Response response) throws IOException {
+            byte[] js;
+            byte[] gz;
+            String tag;
+            long modified;
+            final GeneratedVM g = BaseHTTPLauncher.this.generated;
+            synchronized (g) {
+                if (!fp.equals(g.fingerprint)) {
+                    StringBuilder sb = new StringBuilder();
+                    generateBck2BrwsrJS(sb, BaseHTTPLauncher.this.resources);
+                    g.plain = sb.toString().getBytes("UTF-8");
+                    g.gzipped = gzip(g.plain);
+                    g.fingerprint = fp;
+                    g.etag = "\"" + Integer.toHexString(fp.hashCode()) + "-" + Integer.toHexString(g.plain.length) + "\"";
+                    g.lastModified = System.currentTimeMillis() / 1000 * 1000;
+                    LOG.log(Level.INFO, "Generated {0}: {1} bytes, {2} gzipped", new Object[] { vmResource, g.plain.length, g.gzipped.length });
+                }
+                js = g.plain;
+                gz = g.gzipped;
+                tag = g.etag;
+                modified = g.lastModified;
+            }
+            response.setHeader(Header.ETag, tag);
+            response.setDateHeader(Header.LastModified, modified);
+            response.setHeader(Header.CacheControl, "no-cache");
+            response.setHeader(Header.Vary, "Accept-Encoding");
+            if (tag.equals(request.getHeader("If-None-Match"))) {
+                response.setStatus(HttpStatus.NOT_MODIFIED_304);
+                return;
+            }
+            response.setCharacterEncoding("UTF-8");
+            response.setContentType("text/javascript");
+            send(request, response, js, gz);
+        }
+
         private void registerVM(String vmResource) {
             this.vmResource = vmResource;
         }
     }
 
     private static class Classes extends HttpHandler {
+        /** content type of classes requested with <code>base64</code> parameter */
+        static final String BASE64_TYPE = "application/x-bck2brwsr-class";
+        /** content type of classes requested with <code>closure</code>
+         * parameter: lines with resource name followed by base64 encoded
+         * class file
+         */
+        static final String CLOSURE_TYPE = "application/x-bck2brwsr-classes";
+        private static final int MAX_CLOSURE = 512;
+        private static final int MAX_PAGES = 64;
+        private static final char[] BASE64 = (
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+        ).toCharArray();
         private final Res loader;
+        private final Artifacts artifacts;
+        private int count;
+        private long classBytes;
+        private long sentChars;
+        private long millis;
+        /** classes already sent to a page, for the most recent pages */
+        private final Map<String,Set<String>> prefetched = new LinkedHashMap<String,Set<String>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,Set<String>> eldest) {
+                return size() > MAX_PAGES;
+            }
+        };
 
-        public Classes(Res loader) {
+        public Classes(Res loader, Artifacts artifacts) {
             this.loader = loader;
+            this.artifacts = artifacts;
+        }
+
+        private synchronized void served(String res, int cnt, int size, int sent, long took) {
+            count += cnt;
+            classBytes += size;
+            sentChars += sent;
+            millis += took;
+            LOG.log(Level.FINE, "Served {0} and {1} other classes: {2} bytes as {3} characters in {4} ms",
+                new Object[]{res, cnt - 1, size, sent, took}
+            );
+        }
+
+        /** Writes the requested class followed by classes it references.
+         * Only classes from the same JAR or directory are included, the
+         * others may be compiled into a library. Classes that were already
+         * sent to the same page are skipped.
+         *
+         * @param page identification of the requesting page or
+         *   <code>null</code>
+         * @return number of classes and their total size in bytes
+         */
+        private int[] closure(String res, URL url, byte[] arr, StringBuilder sb, String page) throws IOException {
+            final String container = container(url, res);
+            final Set<String> sent;
+            synchronized (this) {
+                Set<String> s = page == null ? null : prefetched.get(page);
+                if (s == null) {
+                    s = new HashSet<String>();
+                    if (page != null) {
+                        prefetched.put(page, s);
+                    }
+                }
+                sent = s;
+            }
+            List<String> queue = new ArrayList<String>();
+            Set<String> seen = new HashSet<String>();
+            queue.add(res);
+            seen.add(res);
+            int cnt = 0;
+            int size = 0;
+            for (int i = 0; i < queue.size() && cnt < MAX_CLOSURE; i++) {
+                final String name = queue.get(i);
+                byte[] bytes;
+                if (i == 0) {
+                    bytes = arr;
+                } else {
+                    synchronized (this) {
+                        if (sent.contains(name)) {
+                            continue;
+                        }
+                    }
+                    URL u;
+                    try {
+                        u = loader.get(name, 0);
+                    } catch (IOException ex) {
+                        continue;
+                    }
+                    if (u == null || !container.equals(container(u, name))) {
+                        continue;
+                    }
+                    InputStream is = u.openStream();
+                    try {
+                        bytes = readBytes(is);
+                    } finally {
+                        is.close();
+                    }
+                }
+                synchronized (this) {
+                    sent.add(name);
+                }
+                sb.append(name).append('\n').append(base64(bytes)).append('\n');
+                cnt++;
+                size += bytes.length;
+                try {
+                    for (String ref : ClassReferences.find(bytes)) {
+                        if (seen.add(ref)) {
+                            queue.add(ref);
+                        }
+                    }
+                } catch (IOException ex) {
+                    LOG.log(Level.FINE, "Cannot find references of " + name, ex);
+                }
+            }
+            return new int[] { cnt, size };
+        }
+
+        private static String container(URL url, String res) throws IOException {
+            if (url.getProtocol().equals("jar")) {
+                JarURLConnection juc = (JarURLConnection) url.openConnection();
+                return juc.getJarFileURL().toExternalForm();
+            }
+            String s = url.toExternalForm();
+            return s.endsWith(res) ? s.substring(0, s.length() - res.length()) : s;
+        }
+
+        synchronized void logStatistics() {
+            if (count > 0) {
+                LOG.log(Level.INFO, "Served {0} classes: {1} bytes as {2} characters in {3} ms",
+                    new Object[]{count, classBytes, sentChars, millis}
+                );
+            }
+        }
+
+        private static byte[] readBytes(InputStream is) throws IOException {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            byte[] arr = new byte[4096];
+            for (;;) {
+                int len = is.read(arr);
+                if (len == -1) {
+                    break;
+                }
+                os.write(arr, 0, len);
+            }
+            return os.toByteArray();
+        }
+
+        static String base64(byte[] arr) {
+            StringBuilder sb = new StringBuilder((arr.length + 2) / 3 * 4);
+            for (int i = 0; i < arr.length; i += 3) {
+                int b0 = arr[i] & 0xff;
+                int b1 = i + 1 < arr.length ? arr[i + 1] & 0xff : 0;
+                int b2 = i + 2 < arr.length ? arr[i + 2] & 0xff : 0;
+                sb.append(BASE64[b0 >> 2]);
+                sb.append(BASE64[((b0 & 0x03) << 4) | (b1 >> 4)]);
+                sb.append(i + 1 < arr.length ? BASE64[((b1 & 0x0f) << 2) | (b2 >> 6)] : '=');
+                sb.append(i + 2 < arr.length ? BASE64[b2 & 0x3f] : '=');
+            }
+            return sb.toString();
         }
 
         @Override
@@ -817,9 +1332,11 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
                         throw new IOException("Can't compile " + url.toExternalForm(), iOException);
                     }
                     if (s instanceof String) {
-                        Writer w = response.getWriter();
-                        w.append((String)s);
-                        w.close();
+                        response.sendRedirect(artifacts.register((String)s));
+                        return;
+                    }
+                    if (s instanceof URL) {
+                        response.sendRedirect(artifacts.register((URL)s));
                         return;
                     }
                     if (s instanceof InputStream) {
@@ -839,9 +1356,7 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
                     }
                     String s = loader.compileFromClassPath(url);
                     if (s != null) {
-                        Writer w = response.getWriter();
-                        w.append(s);
-                        w.close();
+                        response.sendRedirect(artifacts.register(s));
                         return;
                     }
                 }
@@ -854,26 +1369,51 @@ abstract class BaseHTTPLauncher extends Launcher implements Closeable, Callable<
                     throw new IOException("Resource not found");
                 }
                 is = url.openStream();
-                response.setContentType("text/javascript");
-                Writer w = response.getWriter();
-                w.append("([");
-                for (int i = 0;; i++) {
-                    int b = is.read();
-                    if (b == -1) {
-                        break;
-                    }
-                    if (i > 0) {
-                        w.append(", ");
-                    }
-                    if (i % 20 == 0) {
-                        w.write("\n");
-                    }
-                    if (b > 127) {
-                        b = b - 256;
+                long started = System.currentTimeMillis();
+                int size;
+                int sent;
+                int cnt = 1;
+                if (skipCnt == 0 && request.getParameter("closure") != null) {
+                    StringBuilder sb = new StringBuilder();
+                    int[] stat = closure(res, url, readBytes(is), sb, request.getParameter("page"));
+                    response.setContentType(CLOSURE_TYPE);
+                    send(request, response, sb);
+                    cnt = stat[0];
+                    size = stat[1];
+                    sent = sb.length();
+                } else if (request.getParameter("base64") != null) {
+                    byte[] arr = readBytes(is);
+                    String encoded = base64(arr);
+                    response.setContentType(BASE64_TYPE);
+                    send(request, response, encoded);
+                    size = arr.length;
+                    sent = encoded.length();
+                } else {
+                    response.setContentType("text/javascript");
+                    StringBuilder w = new StringBuilder();
+                    w.append("([");
+                    for (int i = 0;; i++) {
+                        int b = is.read();
+                        if (b == -1) {
+                            size = i;
+                            break;
+                        }
+                        if (i > 0) {
+                            w.append(", ");
+                        }
+                        if (i % 20 == 0) {
+                            w.append("\n");
+                        }
+                        if (b > 127) {
+                            b = b - 256;
+                        }
+                        w.append(b);
                     }
-                    w.append(Integer.toString(b));
+                    w.append("\n])");
+                    sent = w.length();
+                    send(request, response, w);
                 }
-                w.append("\n])");
+                served(res, cnt, size, sent, System.currentTimeMillis() - started);
             } catch (IOException ex) {
                 response.setStatus(HttpStatus.NOT_FOUND_404);
                 response.setError();
@@ -0,0 +1,105 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.bck2brwsr.launcher;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Finds classes referenced from a class file, so they can be sent to
+ * the browser together with it.
+ */
+final class ClassReferences {
+    private ClassReferences() {
+    }
+
+    /** Names of classes referenced from constant pool of given class file.
+     *
+     * @param arr bytes of a class file
+     * @return resource names like <code>java/lang/Object.class</code>
+     * @throws IOException if the bytes aren't a class file
+     */
+    static List<String> find(byte[] arr) throws IOException {
+        DataInputStream is = new DataInputStream(new ByteArrayInputStream(arr));
+        if (is.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        is.readUnsignedShort();
+        is.readUnsignedShort();
+        final int cnt = is.readUnsignedShort();
+        String[] utf = new String[cnt];
+        int[] classes = new int[cnt];
+        int classesCnt = 0;
+        for (int i = 1; i < cnt; i++) {
+            final int tag = is.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf[i] = is.readUTF();
+                    break;
+                case 7: // Class
+                    classes[classesCnt++] = is.readUnsignedShort();
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    is.readUnsignedShort();
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    is.readInt();
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    is.readLong();
+                    i++;
+                    break;
+                case 15: // MethodHandle
+                    is.readUnsignedByte();
+                    is.readUnsignedShort();
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        List<String> names = new ArrayList<String>(classesCnt);
+        for (int i = 0; i < classesCnt; i++) {
+            String n = utf[classes[i]];
+            if (n == null) {
+                continue;
+            }
+            if (n.startsWith("[")) {
+                int at = n.indexOf('L');
+                if (at == -1 || !n.endsWith(";")) {
+                    continue;
+                }
+                n = n.substring(at + 1, n.length() - 1);
+            }
+            names.add(n + ".class");
+        }
+        return names;
+    }
+}
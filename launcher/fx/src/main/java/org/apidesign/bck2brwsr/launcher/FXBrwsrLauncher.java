@@ -97,11 +97,11 @@ final class FXBrwsrLauncher extends BaseHTTPLauncher {
     }
     
     @Override
-    void generateBck2BrwsrJS(StringBuilder sb, Res loader) throws IOException {
-        sb.append("(function() {\n"
+    void generateBck2BrwsrJS(Appendable out, Res loader) throws IOException {
+        out.append("(function() {\n"
             + "  var impl = this.bck2brwsr;\n"
             + "  this.bck2brwsr = function() { return impl; };\n");
-        sb.append("})(window);\n");
+        out.append("})(window);\n");
         JVMBridge.onBck2BrwsrLoad();
     }
 
@@ -24,6 +24,7 @@ import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.CharBuffer;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -51,7 +52,7 @@ final class Bck2BrwsrLauncher extends BaseHTTPLauncher {
     Object compileJar(URL jar, URL precompiled) throws IOException {
         if (precompiled != null) {
             LOG.log(Level.INFO, "Found precompiled JAR version of {0} at {1}. Using.", new Object[]{jar, precompiled});
-            return precompiled.openStream();
+            return precompiled;
         }
         File f;
         try {
@@ -59,7 +60,7 @@ final class Bck2BrwsrLauncher extends BaseHTTPLauncher {
         } catch (URISyntaxException ex) {
             throw new IOException(ex);
         }
-        LOG.log(Level.INFO, "No precompiled version for {0} found. Compiling.", jar);
+        LOG.log(Level.FINE, "No precompiled version for {0} found.", jar);
         return CompileCP.compileJAR(f, testClasses);
     }
 
@@ -69,12 +70,30 @@ final class Bck2BrwsrLauncher extends BaseHTTPLauncher {
         return super.createInvocation(clazz, method);
     }
 
+    @Override
+    int sessions() {
+        return Integer.getInteger("bck2brwsr.sessions", 1); // NOI18N
+    }
+
     @Override String compileFromClassPath(URL f, Res loader) throws IOException {
         return CompileCP.compileFromClassPath(f, loader);
     }
+
+    @Override
+    String vmFingerprint(Res loader) throws IOException {
+        String b2b = System.getProperty("bck2brwsr.js");
+        if (b2b != null) {
+            File f = new File(b2b);
+            if (f.exists()) {
+                return b2b + ":" + f.length() + ":" + f.lastModified();
+            }
+            return null;
+        }
+        return CompileCP.vmFingerprint(loader);
+    }
     
     @Override
-    void generateBck2BrwsrJS(StringBuilder sb, final Res loader) throws IOException {
+    void generateBck2BrwsrJS(Appendable out, final Res loader) throws IOException {
         String b2b = System.getProperty("bck2brwsr.js");
         if (b2b != null) {
             LOG.log(Level.INFO, "Serving bck2brwsr.js from {0}", b2b);
@@ -96,17 +115,54 @@ final class Bck2BrwsrLauncher extends BaseHTTPLauncher {
                    if (len == -1) {
                        break;
                    }
-                   sb.append(arr, 0, len);
+                   out.append(CharBuffer.wrap(arr, 0, len));
                 }
             }
         } else {
             LOG.log(Level.INFO, "Generating bck2brwsr.js from scratch", b2b);
-            CompileCP.compileVM(sb, loader);
+            CompileCP.compileVM(out, loader);
         }
-        sb.append(
+        out.append(
               "(function WrapperVM(global) {\n"
             + "  var cache = {};\n"
             + "  var empty = {};\n"
+            + "  var page = Math.random().toString(36).substring(2) + new Date().getTime().toString(36);\n"
+            + "  function decode(txt) {\n"
+            + "    var bytes = atob(txt);\n"
+            + "    var arr = new Array(bytes.length);\n"
+            + "    for (var i = 0; i < bytes.length; i++) {\n"
+            + "      arr[i] = (bytes.charCodeAt(i) << 24) >> 24;\n"
+            + "    }\n"
+            + "    return arr;\n"
+            + "  }\n"
+            + "  function query(res, skip) {\n"
+            + "    var closure = skip === 0 ? '&closure=true&page=' + page : '';\n"
+            + "    return '/classes/' + res + '?skip=' + skip + '&base64=true' + closure;\n"
+            + "  }\n"
+            + "  function received(c, skip, request) {\n"
+            + "    if (request.status !== 200) {\n"
+            + "      c[skip] = null;\n"
+            + "      return null;\n"
+            + "    }\n"
+            + "    var type = request.getResponseHeader('Content-Type');\n"
+            + "    var arr;\n"
+            + "    if (type && type.indexOf('application/x-bck2brwsr-classes') === 0) {\n"
+            + "      var lines = request.responseText.split('\\n');\n"
+            + "      for (var i = 0; i + 1 < lines.length; i += 2) {\n"
+            + "        var other = cache[lines[i]];\n"
+            + "        if (!other) cache[lines[i]] = other = new Array();\n"
+            + "        if (!other[0]) other[0] = decode(lines[i + 1]);\n"
+            + "      }\n"
+            + "      arr = c[skip];\n"
+            + "    } else if (type && type.indexOf('application/x-bck2brwsr-class') === 0) {\n"
+            + "      arr = decode(request.responseText);\n"
+            + "    } else {\n"
+            + "      arr = eval(request.responseText);\n"
+            + "    }\n"
+            + "    if (arr === null || typeof arr === 'undefined') c[skip] = empty;\n"
+            + "    else c[skip] = arr;\n"
+            + "    return arr;\n"
+            + "  }\n"
             + "  function ldCls(res, skip) {\n"
             + "    var c = cache[res];\n"
             + "    if (c) {\n"
@@ -116,22 +172,79 @@ final class Bck2BrwsrLauncher extends BaseHTTPLauncher {
             + "      cache[res] = c = new Array();\n"
             + "    }\n"
             + "    var request = new XMLHttpRequest();\n"
-            + "    request.open('GET', '/classes/' + res + '?skip=' + skip, false);\n"
+            + "    request.open('GET', query(res, skip), false);\n"
             + "    request.send();\n"
-            + "    if (request.status !== 200) {\n"
-            + "      c[skip] = null;\n"
-            + "      return null;\n"
+            + "    return received(c, skip, request);\n"
+            + "  }\n"
+            + "  var loading = {};\n"
+            + "  function prefetch(res, done) {\n"
+            + "    var c = cache[res];\n"
+            + "    if (c && typeof c[0] !== 'undefined') {\n"
+            + "      done();\n"
+            + "      return;\n"
             + "    }\n"
-            + "    var arr = eval(request.responseText);\n"
-            + "    if (arr === null) c[skip] = empty;\n"
-            + "    else c[skip] = arr;\n"
-            + "    return arr;\n"
+            + "    if (loading[res]) {\n"
+            + "      loading[res].push(done);\n"
+            + "      return;\n"
+            + "    }\n"
+            + "    if (!c) cache[res] = c = new Array();\n"
+            + "    var waiting = loading[res] = [ done ];\n"
+            + "    var request = new XMLHttpRequest();\n"
+            + "    request.open('GET', query(res, 0), true);\n"
+            + "    request.onreadystatechange = function() {\n"
+            + "      if (request.readyState !== 4) return;\n"
+            + "      delete loading[res];\n"
+            + "      try {\n"
+            + "        received(c, 0, request);\n"
+            + "      } catch (err) {\n"
+            + "        c[0] = null;\n"
+            + "        if (typeof console !== 'undefined') console.log('Cannot load ' + res + ': ' + err);\n"
+            + "      }\n"
+            + "      for (var i = 0; i < waiting.length; i++) waiting[i]();\n"
+            + "    };\n"
+            + "    request.send();\n"
+            + "  }\n"
+            + "  function resource(name) {\n"
+            + "    return name.replace(/\\./g, '/') + '.class';\n"
             + "  }\n"
             + "  var prevvm = global.bck2brwsr;\n"
             + "  global.bck2brwsr = function() {\n"
             + "    var args = Array.prototype.slice.apply(arguments);\n"
             + "    args.unshift(ldCls);\n"
-            + "    return prevvm.apply(null, args);\n"
+            + "    var vm = prevvm.apply(null, args);\n"
+            + "    var loadClass = vm.loadClass;\n"
+            + "    vm.preload = function(names, done) {\n"
+            + "      var cnt = names.length + 1;\n"
+            + "      function one() {\n"
+            + "        if (--cnt === 0 && done) done();\n"
+            + "      }\n"
+            + "      for (var i = 0; i < names.length; i++) {\n"
+            + "        prefetch(resource(names[i]), one);\n"
+            + "      }\n"
+            + "      one();\n"
+            + "    };\n"
+            + "    vm.loadClass = function(name) {\n"
+            + "      var c = cache[resource(name)];\n"
+            + "      if (c && typeof c[0] !== 'undefined') return loadClass(name);\n"
+            + "      var queue = [];\n"
+            + "      var clazz = null;\n"
+            + "      vm.preload([ name ], function() {\n"
+            + "        clazz = loadClass(name);\n"
+            + "        var calls = queue;\n"
+            + "        queue = null;\n"
+            + "        for (var i = 0; i < calls.length; i++) {\n"
+            + "          clazz.invoke.apply(clazz, calls[i]);\n"
+            + "        }\n"
+            + "      });\n"
+            + "      if (clazz) return clazz;\n"
+            + "      return {\n"
+            + "        'invoke' : function() {\n"
+            + "          if (queue) queue.push(arguments);\n"
+            + "          else clazz.invoke.apply(clazz, arguments);\n"
+            + "        }\n"
+            + "      };\n"
+            + "    };\n"
+            + "    return vm;\n"
             + "  };\n"
             + "  global.bck2brwsr.register = prevvm.register;\n"
             + "})(this);\n"
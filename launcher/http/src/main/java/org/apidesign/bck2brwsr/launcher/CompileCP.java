@@ -27,10 +27,13 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apidesign.bck2brwsr.aot.Bck2BrwsrJars;
 import org.apidesign.bck2brwsr.launcher.BaseHTTPLauncher.Res;
 import org.apidesign.vm4brwsr.Bck2Brwsr;
+import org.apidesign.vm4brwsr.ClassCache;
 
 /**
  *
@@ -38,14 +41,53 @@ import org.apidesign.vm4brwsr.Bck2Brwsr;
  */
 class CompileCP {
     private static final Logger LOG = Logger.getLogger(CompileCP.class.getName());
+    /** Directory to keep translated classes in among restarts */
+    private static final File CACHE;
+    static {
+        String dir = System.getProperty("bck2brwsr.cache"); // NOI18N
+        CACHE = dir == null ? null : new File(dir);
+    }
+    /** Directory to keep scripts generated from whole JARs and directories */
+    private static final File ARTIFACTS;
+    static {
+        String dir = System.getProperty("bck2brwsr.artifacts"); // NOI18N
+        if (dir != null) {
+            ARTIFACTS = dir.isEmpty() ? null : new File(dir);
+        } else if (CACHE != null) {
+            ARTIFACTS = new File(CACHE, "artifacts"); // NOI18N
+        } else {
+            ARTIFACTS = null;
+        }
+    }
+    /** Classes parsed by previous compilations. Limited, as the launcher
+     * may run for a long time and see many versions of the same classes */
+    private static final ClassCache CLASSES = ClassCache.create(16384);
+
+    /** The compiler with options shared by all compilations. */
+    private static Bck2Brwsr compiler() {
+        return Bck2Brwsr.newCompiler().cache(CACHE).classCache(CLASSES);
+    }
+
     static String compileJAR(final File jar, Set<String> testClasses) 
     throws IOException {
+        final String[] exported = testClasses.toArray(new String[0]);
+        return CompiledArtifacts.find(ARTIFACTS, jar, exported, compiler().toString(), new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                return compileJAR(jar, exported);
+            }
+        });
+    }
+
+    private static String compileJAR(File jar, String[] exported) throws IOException {
+        LOG.log(Level.INFO, "Compiling {0}", jar);
         StringWriter w = new StringWriter();
         try {
-            Bck2BrwsrJars.configureFrom(null, jar)
-                .addExported(testClasses.toArray(new String[0]))
+            Bck2BrwsrJars.configureFrom(compiler(), jar)
+                .addExported(exported)
                 .generate(w);
             w.flush();
+            LOG.log(Level.FINE, "Parsed classes: {0}", CLASSES);
             return w.toString();
         } catch (IOException ex) {
             throw ex;
@@ -74,23 +116,34 @@ class CompileCP {
             }
         }
         if (s != null) {
-            File root = new File(s);
-            StringWriter w = new StringWriter();
-            try {
-                Bck2BrwsrJars.configureFrom(null, root)
-                    .generate(w);
-                w.flush();
-                return w.toString();
-            } catch (ClassFormatError ex) {
-                throw new IOException(ex);
-            } finally {
-                w.close();
-            }
+            final File root = new File(s);
+            return CompiledArtifacts.find(ARTIFACTS, root, new String[0], compiler().toString(), new Callable<String>() {
+                @Override
+                public String call() throws IOException {
+                    return compileDirectory(root);
+                }
+            });
         }
         return null;
     }
+
+    private static String compileDirectory(File root) throws IOException {
+        LOG.log(Level.INFO, "Compiling {0}", root);
+        StringWriter w = new StringWriter();
+        try {
+            Bck2BrwsrJars.configureFrom(compiler(), root)
+                .generate(w);
+            w.flush();
+            LOG.log(Level.FINE, "Parsed classes: {0}", CLASSES);
+            return w.toString();
+        } catch (ClassFormatError ex) {
+            throw new IOException(ex);
+        } finally {
+            w.close();
+        }
+    }
     
-    static void compileVM(StringBuilder sb, final Res r) throws IOException {
+    static void compileVM(Appendable out, final Res r) throws IOException {
         final Bck2Brwsr rt;
         try {
             URL u = r.get(InterruptedException.class.getName().replace('.', '/') + ".class", 0);
@@ -111,6 +164,8 @@ class CompileCP {
 
         all
             .standalone(true)
+            .cache(CACHE)
+            .classCache(CLASSES)
             //.obfuscation(ObfuscationLevel.FULL)
             .resources(new Bck2Brwsr.Resources() {
                 @Override
@@ -118,7 +173,58 @@ class CompileCP {
                     final URL url = r.get(resource, 0);
                     return url == null ? null : url.openStream();
                 }
-            }).generate(sb);
+            }).generate(out);
+    }
+
+    /** Identifies the JARs or directories {@link #compileVM} generates
+     * the virtual machine from.
+     *
+     * @param r the resources
+     * @return paths, sizes and modification times of the JARs or directories
+     * @throws IOException if something goes wrong
+     */
+    static String vmFingerprint(Res r) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        try {
+            fingerprint(sb, r.get(InterruptedException.class.getName().replace('.', '/') + ".class", 0), 3);
+            fingerprint(sb, r.get(Bck2Brwsr.class.getName().replace('.', '/') + ".class", 0), 4);
+        } catch (URISyntaxException ex) {
+            throw new IOException(ex);
+        }
+        return sb.toString();
+    }
+
+    private static void fingerprint(StringBuilder sb, URL u, int parents) throws IOException, URISyntaxException {
+        if (u == null) {
+            sb.append("null;");
+            return;
+        }
+        final URLConnection conn = u.openConnection();
+        File f;
+        if (conn instanceof JarURLConnection) {
+            f = new File(((JarURLConnection)conn).getJarFileURL().toURI());
+        } else if (u.getProtocol().equals("file")) {
+            f = new File(u.toURI());
+            while (parents-- > 0) {
+                f = f.getParentFile();
+            }
+        } else {
+            sb.append(u).append(';');
+            return;
+        }
+        sb.append(f.getPath()).append(':').append(f.length()).
+            append(':').append(lastModified(f)).append(';');
+    }
+
+    private static long lastModified(File f) {
+        long time = f.lastModified();
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) {
+                time = Math.max(time, lastModified(c));
+            }
+        }
+        return time;
     }
 
     static Bck2Brwsr configureFrom(URL u, Bck2Brwsr rt, int parents) throws IOException, URISyntaxException {
@@ -0,0 +1,337 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.bck2brwsr.launcher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apidesign.bck2brwsr.aot.Bck2BrwsrJars;
+import org.apidesign.vm4brwsr.Bck2Brwsr;
+
+/** Scripts generated from whole JARs and classpath directories. An entry
+ * is identified by the path, size and modification time of the JAR (or
+ * of every file in the directory), by the exported classes, by the
+ * options and version of the compiler and by the classpath the compiler
+ * consults for classes outside of the JAR (superclasses, owners of
+ * accessed fields). The classpath is examined only once per JVM.
+ * Entries are shared among all requests and launchers of the JVM and
+ * optionally spilled into a directory, so another run against the same
+ * dependencies doesn't compile them again. The directory keeps at most
+ * {@link #MAX_ENTRIES} recently used entries.
+ */
+final class CompiledArtifacts {
+    private static final Logger LOG = Logger.getLogger(CompiledArtifacts.class.getName());
+    private static final Map<String, Reference<String>> CACHE = new HashMap<>();
+    private static final Map<String, Object> LOCKS = new HashMap<>();
+    /** maximal number of entries kept in the spill directory */
+    static final int MAX_ENTRIES = 64;
+    private static String compiler;
+    private static String classpath;
+
+    private CompiledArtifacts() {
+    }
+
+    /** Finds the script for given JAR or directory or generates it.
+     *
+     * @param dir directory to spill the scripts into or <code>null</code>
+     * @param artifact the JAR file or classpath directory
+     * @param exported names of exported classes
+     * @param options description of options of the compiler
+     * @param compile generates the script
+     * @return the script
+     * @throws IOException if the generation fails
+     */
+    static String find(
+        File dir, File artifact, String[] exported, String options,
+        Callable<String> compile
+    ) throws IOException {
+        final String key = key(artifact, exported, options);
+        final Object lock;
+        synchronized (CACHE) {
+            String s = cached(key);
+            if (s != null) {
+                LOG.log(Level.FINE, "Using compiled {0}", artifact);
+                return s;
+            }
+            Object l = LOCKS.get(key);
+            if (l == null) {
+                l = new Object();
+                LOCKS.put(key, l);
+            }
+            lock = l;
+        }
+        synchronized (lock) {
+            try {
+                String s;
+                synchronized (CACHE) {
+                    s = cached(key);
+                }
+                final File entry = dir == null ? null : new File(dir, key + ".js");
+                if (s == null && entry != null && entry.isFile()) {
+                    s = read(entry);
+                    if (s != null) {
+                        entry.setLastModified(System.currentTimeMillis());
+                        LOG.log(Level.INFO, "Using {0} compiled in {1}", new Object[]{artifact, entry});
+                    }
+                }
+                if (s == null) {
+                    try {
+                        s = compile.call();
+                    } catch (IOException | RuntimeException | Error ex) {
+                        throw ex;
+                    } catch (Exception ex) {
+                        throw new IOException(ex);
+                    }
+                    if (s == null) {
+                        return null;
+                    }
+                    if (entry != null) {
+                        write(entry, s);
+                        prune(dir, MAX_ENTRIES);
+                    }
+                }
+                synchronized (CACHE) {
+                    CACHE.put(key, new SoftReference<>(s));
+                }
+                return s;
+            } finally {
+                synchronized (CACHE) {
+                    LOCKS.remove(key);
+                }
+            }
+        }
+    }
+
+    private static String cached(String key) {
+        Reference<String> ref = CACHE.get(key);
+        return ref == null ? null : ref.get();
+    }
+
+    private static String key(
+        File artifact, String[] exported, String options
+    ) throws IOException {
+        MessageDigest md = newDigest();
+        update(md, compiler());
+        update(md, classpath());
+        update(md, options);
+        update(md, artifact.getPath());
+        if (artifact.isDirectory()) {
+            tree(md, artifact, "");
+        } else {
+            update(md, artifact.length() + ":" + artifact.lastModified());
+        }
+        String[] sorted = exported.clone();
+        Arrays.sort(sorted);
+        for (String e : sorted) {
+            update(md, e);
+        }
+        return hex(md.digest());
+    }
+
+    private static void tree(MessageDigest md, File dir, String prefix) throws IOException {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (File f : children) {
+            String name = prefix + f.getName();
+            if (f.isDirectory()) {
+                tree(md, f, name + "/");
+            } else {
+                update(md, name + ":" + f.length() + ":" + f.lastModified());
+            }
+        }
+    }
+
+    /** Identifies the JAR or directory the compiler has been loaded from.
+     */
+    private static synchronized String compiler() throws IOException {
+        if (compiler == null) {
+            String id = "";
+            URL u = Bck2Brwsr.class.getResource("Bck2Brwsr.class");
+            if (u != null) {
+                URLConnection conn = u.openConnection();
+                if (conn instanceof JarURLConnection) {
+                    u = ((JarURLConnection) conn).getJarFileURL();
+                    id = u + ":" + conn.getContentLength() + ":" + conn.getLastModified();
+                } else {
+                    id = u + ":" + conn.getLastModified();
+                }
+            }
+            compiler = id;
+        }
+        return compiler;
+    }
+
+    /** Identifies the classpath the compiler falls back to when a class
+     * isn't in the compiled JAR or directory.
+     */
+    private static synchronized String classpath() throws IOException {
+        if (classpath == null) {
+            MessageDigest md = newDigest();
+            ClassLoader l = Bck2BrwsrJars.class.getClassLoader();
+            if (l instanceof URLClassLoader) {
+                for (URL u : ((URLClassLoader) l).getURLs()) {
+                    if ("file".equals(u.getProtocol())) {
+                        try {
+                            entry(md, new File(u.toURI()));
+                        } catch (URISyntaxException ex) {
+                            update(md, u.toExternalForm());
+                        }
+                    } else {
+                        update(md, u.toExternalForm());
+                    }
+                }
+            } else {
+                String path = System.getProperty("java.class.path"); // NOI18N
+                for (String p : path.split(File.pathSeparator)) {
+                    entry(md, new File(p));
+                }
+            }
+            classpath = hex(md.digest());
+        }
+        return classpath;
+    }
+
+    private static void entry(MessageDigest md, File f) throws IOException {
+        update(md, f.getPath());
+        if (f.isDirectory()) {
+            tree(md, f, "");
+        } else {
+            update(md, f.length() + ":" + f.lastModified());
+        }
+    }
+
+    /** Deletes least recently used entries.
+     *
+     * @param dir the spill directory
+     * @param max number of entries to keep
+     */
+    static void prune(File dir, int max) {
+        File[] entries = dir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File f) {
+                return f.getName().endsWith(".js");
+            }
+        });
+        if (entries == null || entries.length <= max) {
+            return;
+        }
+        final long[] used = new long[entries.length];
+        Integer[] order = new Integer[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            used[i] = entries[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Long.compare(used[b], used[a]);
+            }
+        });
+        for (int i = max; i < order.length; i++) {
+            File f = entries[order[i]];
+            if (!f.delete()) {
+                LOG.log(Level.FINE, "Cannot delete {0}", f);
+            }
+        }
+    }
+
+    private static String read(File entry) {
+        try (InputStream is = new FileInputStream(entry)) {
+            ByteArrayOutputStream os = new ByteArrayOutputStream((int) entry.length());
+            byte[] arr = new byte[8192];
+            for (;;) {
+                int len = is.read(arr);
+                if (len == -1) {
+                    break;
+                }
+                os.write(arr, 0, len);
+            }
+            return os.toString("UTF-8");
+        } catch (IOException ex) {
+            // broken entry, compile again
+            return null;
+        }
+    }
+
+    private static void write(File entry, String script) {
+        File tmp = null;
+        try {
+            entry.getParentFile().mkdirs();
+            tmp = File.createTempFile("artifact", ".tmp", entry.getParentFile());
+            try (OutputStream os = new FileOutputStream(tmp)) {
+                os.write(script.getBytes("UTF-8"));
+            }
+            Files.move(tmp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            tmp = null;
+        } catch (IOException ex) {
+            LOG.log(Level.FINE, "Cannot store " + entry, ex);
+        } finally {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private static void update(MessageDigest md, String text) throws IOException {
+        md.update(text.getBytes("UTF-8"));
+        md.update((byte) 0);
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    private static String hex(byte[] arr) {
+        StringBuilder sb = new StringBuilder(arr.length * 2);
+        for (byte b : arr) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
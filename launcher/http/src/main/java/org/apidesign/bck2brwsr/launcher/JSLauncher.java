@@ -24,46 +24,110 @@ import java.net.URL;
 import java.util.Enumeration;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.script.Invocable;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
 import org.apidesign.vm4brwsr.Bck2Brwsr;
 
 /**
- * Tests execution in Java's internal scripting engine.
+ * Tests execution in Java's internal scripting engine. The virtual machine
+ * is generated and compiled once; each invocation runs in one of a pool
+ * of script contexts (separate globals of the same engine) initialized
+ * with it. Concurrent invocations use different contexts; more of them
+ * are initialized on demand up to <code>bck2brwsr.engines</code>
+ * (by default the number of processors).
  */
 final class JSLauncher extends Launcher {
     private static final Logger LOG = Logger.getLogger(JSLauncher.class.getName());
+    private static final String INVOKE = "bck2brwsrConsole."
+        + "invoke__Ljava_lang_String_2Ljava_lang_String_2Ljava_lang_String_2"
+        + "(String(bck2brwsrClass), String(bck2brwsrMethod));";
     private Set<ClassLoader> loaders = new LinkedHashSet<>();
     private final Res resources = new Res();
-    private Invocable code;
+    private final BlockingQueue<ScriptContext> idle = new LinkedBlockingQueue<>();
+    private final int max = Math.max(1, Integer.getInteger(
+        "bck2brwsr.engines", Runtime.getRuntime().availableProcessors() // NOI18N
+    ));
+    private ScriptEngine mach;
+    private CompiledScript vmScript;
+    private CompiledScript invokeScript;
     private StringBuilder codeSeq;
-    private Object console;
+    private int contexts;
+    private long warmUp;
+    private final AtomicInteger invocations = new AtomicInteger();
+    private final AtomicLong invocationTime = new AtomicLong();
 
     JSLauncher() {
         addClassLoader(Bck2Brwsr.class.getClassLoader());
     }
     
     @Override InvocationContext runMethod(InvocationContext mi) {
-        loaders.add(mi.clazz.getClassLoader());
+        synchronized (this) {
+            loaders.add(mi.clazz.getClassLoader());
+        }
+        ScriptContext ctx = null;
         try {
+            ctx = acquire();
             long time = System.currentTimeMillis();
             LOG.log(Level.FINE, "Invoking {0}.{1}", new Object[]{mi.clazz.getName(), mi.methodName});
-            String res = code.invokeMethod(
-                console,
-                "invoke__Ljava_lang_String_2Ljava_lang_String_2Ljava_lang_String_2",
-                mi.clazz.getName(), mi.methodName).toString();
+            Bindings b = ctx.getBindings(ScriptContext.ENGINE_SCOPE);
+            b.put("bck2brwsrClass", mi.clazz.getName());
+            b.put("bck2brwsrMethod", mi.methodName);
+            Object ret = invokeScript != null ? invokeScript.eval(ctx) : mach.eval(INVOKE, ctx);
+            String res = String.valueOf(ret);
             time = System.currentTimeMillis() - time;
+            invocations.incrementAndGet();
+            invocationTime.addAndGet(time);
             LOG.log(Level.FINE, "Resut of {0}.{1} = {2} in {3} ms", new Object[]{mi.clazz.getName(), mi.methodName, res, time});
             mi.result(res, null);
-        } catch (ScriptException | NoSuchMethodException ex) {
+        } catch (ScriptException | InterruptedException ex) {
             mi.result(null, ex);
+        } finally {
+            if (ctx != null) {
+                idle.add(ctx);
+            }
         }
         return mi;
     }
+
+    /** Takes an idle context or initializes a new one, if the limit
+     * hasn't been reached yet.
+     */
+    private ScriptContext acquire() throws ScriptException, InterruptedException {
+        ScriptContext ctx = idle.poll();
+        if (ctx != null) {
+            return ctx;
+        }
+        boolean create;
+        synchronized (this) {
+            create = contexts < max;
+            if (create) {
+                contexts++;
+            }
+        }
+        if (!create) {
+            return idle.take();
+        }
+        try {
+            return newContext();
+        } catch (ScriptException | RuntimeException ex) {
+            synchronized (this) {
+                contexts--;
+            }
+            throw ex;
+        }
+    }
     
     public void addClassLoader(ClassLoader url) {
         this.loaders.add(url);
@@ -84,31 +148,60 @@ final class JSLauncher extends Launcher {
         }
     }
     
-    private void initRhino() throws IOException, ScriptException, NoSuchMethodException {
+    private void initRhino() throws IOException, ScriptException {
+        long time = System.currentTimeMillis();
         StringBuilder sb = new StringBuilder();
         Bck2Brwsr.generate(sb, new Res());
 
         ScriptEngineManager sem = new ScriptEngineManager();
-        ScriptEngine mach = sem.getEngineByExtension("js");
+        mach = sem.getEngineByExtension("js");
+        if (mach == null) {
+            throw new IOException("No JavaScript engine found");
+        }
 
         sb.append(
               "\nvar vm = new bck2brwsr(org.apidesign.bck2brwsr.launcher.impl.Console.read);"
-            + "\nfunction initVM() { return vm; };"
+            + "\nvar bck2brwsrConsole = vm.loadClass('" + Console.class.getName() + "');"
             + "\n");
+        codeSeq = sb;
+        if (mach instanceof Compilable) {
+            vmScript = ((Compilable) mach).compile(sb.toString());
+            invokeScript = ((Compilable) mach).compile(INVOKE);
+        }
+        LOG.log(Level.FINE, "Generated virtual machine in {0} ms", System.currentTimeMillis() - time);
 
-        Object res = mach.eval(sb.toString());
-        if (!(mach instanceof Invocable)) {
-            throw new IOException("It is invocable object: " + res);
+        synchronized (this) {
+            contexts++;
         }
-        code = (Invocable) mach;
-        codeSeq = sb;
-        
-        Object vm = code.invokeFunction("initVM");
-        console = code.invokeMethod(vm, "loadClass", Console.class.getName());
+        idle.add(newContext());
+    }
+
+    /** Creates new global and initializes the virtual machine in it.
+     */
+    private ScriptContext newContext() throws ScriptException {
+        long time = System.currentTimeMillis();
+        ScriptContext ctx = new SimpleScriptContext();
+        ctx.setBindings(mach.createBindings(), ScriptContext.ENGINE_SCOPE);
+        if (vmScript != null) {
+            vmScript.eval(ctx);
+        } else {
+            mach.eval(codeSeq.toString(), ctx);
+        }
+        time = System.currentTimeMillis() - time;
+        synchronized (this) {
+            warmUp += time;
+        }
+        LOG.log(Level.FINE, "Initialized script context in {0} ms", time);
+        return ctx;
     }
 
     @Override
     public void shutdown() throws IOException {
+        synchronized (this) {
+            LOG.log(Level.INFO, "Initialized {0} script contexts in {1} ms, {2} invocations took {3} ms",
+                new Object[]{contexts, warmUp, invocations.get(), invocationTime.get()}
+            );
+        }
     }
 
     @Override
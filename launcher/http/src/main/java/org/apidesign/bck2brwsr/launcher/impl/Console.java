@@ -126,31 +126,52 @@ public class Console {
         + "request.send();"
     )
     private static native void loadText(String url, Runnable callback, String[] arr) throws IOException;
+
+    @JavaScriptBody(args = { "url", "body", "callback", "arr" }, body = ""
+        + "var request = new XMLHttpRequest();\n"
+        + "request.open('POST', url, true);\n"
+        + "request.setRequestHeader('Content-Type', 'application/x-www-form-urlencoded; charset=utf-8');\n"
+        + "request.onreadystatechange = function() {\n"
+        + "  if (this.readyState!==4) return;\n"
+        + "  arr[0] = this.responseText;\n"
+        + "  callback.run__V();\n"
+        + "};"
+        + "request.send(body);"
+    )
+    private static native void postText(String url, String body, Runnable callback, String[] arr) throws IOException;
     
     public static void harness(String url) throws IOException {
         log("Connecting to " + url);
         Request r = new Request(url);
     }
     
+    /** Number of cases to ask for at once. The server sends fewer when
+     * there aren't enough pending cases or when they need an HTML fragment
+     * or HTTP resources.
+     */
+    private static final int BATCH = 32;
+    
     private static class Request implements Runnable {
         private final String[] arr = { null };
         private final String url;
-        private Case c;
+        private Case[] cases;
+        private int index;
         private int retries;
+        private final StringBuilder results = new StringBuilder();
 
         private Request(String url) throws IOException {
             this.url = url;
-            loadText(url, this, arr);
+            loadText(url + "?batch=" + BATCH, this, arr);
         }
-        private Request(String url, String u) throws IOException {
+        private Request(String url, String body) throws IOException {
             this.url = url;
-            loadText(u, this, arr);
+            postText(url, body, this, arr);
         }
         
         @Override
         public void run() {
             try {
-                if (c == null) {
+                if (cases == null) {
                     String data = arr[0];
 
                     if (data == null) {
@@ -165,17 +186,23 @@ public class Console {
                         return;
                     }
 
-                    c = Case.parseData(data);
-                    beginTest(c);
+                    cases = Case.parseBatch(data);
                     log("Got \"" + data + "\"");
-                } else {
-                    log("Processing \"" + arr[0] + "\" for " + retries + " time");
                 }
-                Object result = retries++ >= 100 ? "java.lang.InterruptedException:timeout(" + retries + ")" : c.runTest();
-                finishTest(c, result);
-                
-                String u = url + "?request=" + c.getRequestId() + "&result=" + result;
-                new Request(url, u);
+                while (index < cases.length) {
+                    Case c = cases[index];
+                    if (retries == 0) {
+                        beginTest(c);
+                    } else {
+                        log("Processing \"" + arr[0] + "\" for " + retries + " time");
+                    }
+                    Object result = retries++ >= 100 ? "java.lang.InterruptedException:timeout(" + retries + ")" : c.runTest();
+                    finishTest(c, result);
+                    results.append("&request=").append(c.getRequestId()).append("&result=").append(result);
+                    index++;
+                    retries = 0;
+                }
+                new Request(url, "batch=" + BATCH + results);
             } catch (Exception ex) {
                 if (ex instanceof InterruptedException) {
                     log("Re-scheduling in 100ms");
@@ -282,8 +309,19 @@ public class Console {
             this.data = data;
         }
         
-        public static Case parseData(String s) {
-            return new Case(toJSON(s));
+        /** Parses a batch of cases or a single case.
+         */
+        public static Case[] parseBatch(String s) {
+            Object json = toJSON(s);
+            int len = length(json);
+            if (len < 0) {
+                return new Case[] { new Case(json) };
+            }
+            Case[] arr = new Case[len];
+            for (int i = 0; i < len; i++) {
+                arr[i] = new Case(at(json, i));
+            }
+            return arr;
         }
         
         public String getMethodName() {
@@ -368,6 +406,12 @@ public class Console {
         @JavaScriptBody(args = "s", body = "return eval('(' + s + ')');")
         private static native Object toJSON(String s);
         
+        @JavaScriptBody(args = "arr", body = "return arr instanceof Array ? arr.length : -1;")
+        private static native int length(Object arr);
+        
+        @JavaScriptBody(args = {"arr", "i"}, body = "return arr[i];")
+        private static native Object at(Object arr, int i);
+        
         @JavaScriptBody(args = {"p", "d"}, body = 
               "var v = d[p];\n"
             + "if (typeof v === 'undefined') return null;\n"
@@ -38,4 +38,14 @@ public class CompileCPTest {
         String resources = CompileCP.compileFromClassPath(u, null);
         assertNotNull(resources, "something compiled");
     }
+
+    @Test public void compiledClassPathIsReused() throws Exception {
+        URL u = CompileCPTest.class.getResource("/" + CompileCPTest.class.getName().replace('.', '/') + ".class");
+        assertNotNull(u, "URL found");
+        
+        String first = CompileCP.compileFromClassPath(u, null);
+        assertNotNull(first, "something compiled");
+        String second = CompileCP.compileFromClassPath(u, null);
+        assertSame(second, first, "The same script is returned without compiling again");
+    }
 }
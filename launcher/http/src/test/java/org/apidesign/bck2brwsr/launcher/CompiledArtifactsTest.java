@@ -0,0 +1,75 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.bck2brwsr.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+
+public class CompiledArtifactsTest {
+    @Test public void differentOptionsCompileAgain() throws Exception {
+        File jar = File.createTempFile("artifact", ".jar");
+        try {
+            String[] exported = { "a/A" };
+            assertEquals(CompiledArtifacts.find(null, jar, exported, "one", new Script("first")), "first");
+            assertEquals(CompiledArtifacts.find(null, jar, exported, "one", new Script("again")), "first", "Reused");
+            assertEquals(CompiledArtifacts.find(null, jar, exported, "two", new Script("second")), "second", "Compiled again");
+        } finally {
+            jar.delete();
+        }
+    }
+
+    @Test public void pruneKeepsRecentlyUsed() throws Exception {
+        File dir = File.createTempFile("artifacts", ".dir");
+        dir.delete();
+        dir.mkdirs();
+        try {
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < 5; i++) {
+                File f = new File(dir, "e" + i + ".js");
+                f.createNewFile();
+                f.setLastModified(now - (5 - i) * 60000L);
+            }
+            CompiledArtifacts.prune(dir, 3);
+            String[] left = dir.list();
+            Arrays.sort(left);
+            assertEquals(left, new String[] { "e2.js", "e3.js", "e4.js" }, "Oldest entries deleted");
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    private static final class Script implements Callable<String> {
+        private final String text;
+
+        Script(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String call() throws IOException {
+            return text;
+        }
+    }
+}
@@ -26,6 +26,7 @@
 package java.util;
 
 import java.lang.reflect.*;
+import org.apidesign.bck2brwsr.core.JavaScriptBody;
 
 /**
  * This class contains various methods for manipulating arrays (such as
@@ -782,6 +783,21 @@ public class Arrays {
         }
     }
 
+    /**
+     * Fills the range of a primitive array backed by a JavaScript typed array.
+     * Returns false, if the array is a plain JavaScript array.
+     */
+    @JavaScriptBody(args = { "a", "fromIndex", "toIndex", "val" }, body =
+        "if (typeof a.subarray !== 'function') return false;\n" +
+        "if (typeof a.fill === 'function') {\n" +
+        "  a.fill(val, fromIndex, toIndex);\n" +
+        "} else {\n" +
+        "  for (var i = fromIndex; i < toIndex; i++) a[i] = val;\n" +
+        "}\n" +
+        "return true;"
+    )
+    private static native boolean fillTyped(Object a, int fromIndex, int toIndex, double val);
+
     /**
      * Checks that {@code fromIndex} and {@code toIndex} are in
      * the range and throws an appropriate exception, if they aren't.
@@ -1915,6 +1931,9 @@ public class Arrays {
      * @param val the value to be stored in all elements of the array
      */
     public static void fill(int[] a, int val) {
+        if (fillTyped(a, 0, a.length, val)) {
+            return;
+        }
         for (int i = 0, len = a.length; i < len; i++)
             a[i] = val;
     }
@@ -1938,6 +1957,9 @@ public class Arrays {
      */
     public static void fill(int[] a, int fromIndex, int toIndex, int val) {
         rangeCheck(a.length, fromIndex, toIndex);
+        if (fillTyped(a, fromIndex, toIndex, val)) {
+            return;
+        }
         for (int i = fromIndex; i < toIndex; i++)
             a[i] = val;
     }
@@ -1950,6 +1972,9 @@ public class Arrays {
      * @param val the value to be stored in all elements of the array
      */
     public static void fill(short[] a, short val) {
+        if (fillTyped(a, 0, a.length, val)) {
+            return;
+        }
         for (int i = 0, len = a.length; i < len; i++)
             a[i] = val;
     }
@@ -1973,6 +1998,9 @@ public class Arrays {
      */
     public static void fill(short[] a, int fromIndex, int toIndex, short val) {
         rangeCheck(a.length, fromIndex, toIndex);
+        if (fillTyped(a, fromIndex, toIndex, val)) {
+            return;
+        }
         for (int i = fromIndex; i < toIndex; i++)
             a[i] = val;
     }
@@ -1985,6 +2013,9 @@ public class Arrays {
      * @param val the value to be stored in all elements of the array
      */
     public static void fill(char[] a, char val) {
+        if (fillTyped(a, 0, a.length, val)) {
+            return;
+        }
         for (int i = 0, len = a.length; i < len; i++)
             a[i] = val;
     }
@@ -2008,6 +2039,9 @@ public class Arrays {
      */
     public static void fill(char[] a, int fromIndex, int toIndex, char val) {
         rangeCheck(a.length, fromIndex, toIndex);
+        if (fillTyped(a, fromIndex, toIndex, val)) {
+            return;
+        }
         for (int i = fromIndex; i < toIndex; i++)
             a[i] = val;
     }
@@ -2020,6 +2054,9 @@ public class Arrays {
      * @param val the value to be stored in all elements of the array
      */
     public static void fill(byte[] a, byte val) {
+        if (fillTyped(a, 0, a.length, val)) {
+            return;
+        }
         for (int i = 0, len = a.length; i < len; i++)
             a[i] = val;
     }
@@ -2043,6 +2080,9 @@ public class Arrays {
      */
     public static void fill(byte[] a, int fromIndex, int toIndex, byte val) {
         rangeCheck(a.length, fromIndex, toIndex);
+        if (fillTyped(a, fromIndex, toIndex, val)) {
+            return;
+        }
         for (int i = fromIndex; i < toIndex; i++)
             a[i] = val;
     }
@@ -2091,6 +2131,9 @@ public class Arrays {
      * @param val the value to be stored in all elements of the array
      */
     public static void fill(double[] a, double val) {
+        if (fillTyped(a, 0, a.length, val)) {
+            return;
+        }
         for (int i = 0, len = a.length; i < len; i++)
             a[i] = val;
     }
@@ -2114,6 +2157,9 @@ public class Arrays {
      */
     public static void fill(double[] a, int fromIndex, int toIndex,double val){
         rangeCheck(a.length, fromIndex, toIndex);
+        if (fillTyped(a, fromIndex, toIndex, val)) {
+            return;
+        }
         for (int i = fromIndex; i < toIndex; i++)
             a[i] = val;
     }
@@ -2126,6 +2172,9 @@ public class Arrays {
      * @param val the value to be stored in all elements of the array
      */
     public static void fill(float[] a, float val) {
+        if (fillTyped(a, 0, a.length, val)) {
+            return;
+        }
         for (int i = 0, len = a.length; i < len; i++)
             a[i] = val;
     }
@@ -2149,6 +2198,9 @@ public class Arrays {
      */
     public static void fill(float[] a, int fromIndex, int toIndex, float val) {
         rangeCheck(a.length, fromIndex, toIndex);
+        if (fillTyped(a, fromIndex, toIndex, val)) {
+            return;
+        }
         for (int i = fromIndex; i < toIndex; i++)
             a[i] = val;
     }
@@ -438,6 +438,52 @@ public class LongArithmeticTest {
         return res;
     }
     
+    @Compare public double addToNegativeInt() {
+        int x = -5;
+        return add(x, 3);
+    }
+
+    @Compare public long orNegativeInt() {
+        int x = -5;
+        return or(x, 0);
+    }
+
+    @Compare public long shiftNegativeInt() {
+        int x = -5;
+        return ushr(x, 60) + shr(x, 1) + shl(x, 40);
+    }
+
+    @Compare public long divideNegativeInts() {
+        int x = -7;
+        return div(x, 2) + mod(x, 2);
+    }
+
+    @Compare public long timestampArithmetic() {
+        long now = 1449000123456L;
+        long day = 24L * 60 * 60 * 1000;
+        return (now / day) * day + now % day + mul(now, 1000000L);
+    }
+
+    @Compare public double largeTimestampToDouble() {
+        long now = 1449000123456L;
+        return add(now, now);
+    }
+
+    @Compare public long crossingPlainRange() {
+        long x = 9007199254740991L;
+        return add(x, 2) - mul(x, 3) + neg(x - 1);
+    }
+
+    @Compare public long doubleToLongSaturates() {
+        double big = 1e30;
+        return (long) big + (long) -big;
+    }
+
+    @Compare public long doubleToLongOfHugeNumber() {
+        double big = -123456789012345678.0;
+        return (long) big;
+    }
+
     @Factory
     public static Object[] create() {
         return VMTest.create(LongArithmeticTest.class);
@@ -860,7 +860,7 @@ public final class Double extends Number implements Comparable<Double> {
         int[] arr = { 0, 0 };
         doubleToRawLongBits(value, arr);
         long l = arr[1];
-        return (l << 32) | arr[0];
+        return (l << 32) | (arr[0] & 0xFFFFFFFFL);
     }
     
     @JavaScriptBody(args = { "value", "arr" }, body = ""
@@ -949,7 +949,7 @@ public final class Double extends Number implements Comparable<Double> {
         + "if (e === 0) {\n"
         + "  m = m.shl64(1);\n"
         + "} else {\n"
-        + "  m.hi = m.high32() | 0x100000;\n"
+        + "  m = (m.high32() | 0x100000).next32(m);\n"
         + "}\n"
         + "return s * m.toFP() * Math.pow(2.0, e - 1075);\n"
     )
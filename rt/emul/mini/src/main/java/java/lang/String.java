@@ -178,10 +178,18 @@ public final class String
      *         The initial value of the string
      */
     @JavaScriptBody(args = { "charArr" }, body=
-        "for (var i = 0; i < charArr.length; i++) {\n"
-      + "  if (typeof charArr[i] === 'number') charArr[i] = String.fromCharCode(charArr[i]);\n"
+        "if (typeof charArr.subarray === 'function') {\n"
+      + "  var s = '';\n"
+      + "  for (var i = 0; i < charArr.length; i += 8192) {\n"
+      + "    s += String.fromCharCode.apply(null, charArr.subarray(i, i + 8192));\n"
+      + "  }\n"
+      + "  this._r(s);\n"
+      + "} else {\n"
+      + "  for (var i = 0; i < charArr.length; i++) {\n"
+      + "    if (typeof charArr[i] === 'number') charArr[i] = String.fromCharCode(charArr[i]);\n"
+      + "  }\n"
+      + "  this._r(charArr.join(''));\n"
       + "}\n"
-      + "this._r(charArr.join(''));\n"
     )
     public String(char value[]) {
     }
@@ -213,6 +221,14 @@ public final class String
     
     @JavaScriptBody(args = { "charArr", "off", "cnt" }, body =
         "var up = off + cnt;\n" +
+        "if (typeof charArr.subarray === 'function') {\n" +
+        "  var s = '';\n" +
+        "  for (var i = off; i < up; i += 8192) {\n" +
+        "    s += String.fromCharCode.apply(null, charArr.subarray(i, Math.min(i + 8192, up)));\n" +
+        "  }\n" +
+        "  this._r(s);\n" +
+        "  return;\n" +
+        "}\n" +
         "for (var i = off; i < up; i++) {\n" +
         "  if (typeof charArr[i] === 'number') charArr[i] = String.fromCharCode(charArr[i]);\n" +
         "}\n" +
@@ -792,7 +808,7 @@ public final class String
     @JavaScriptBody(args = { "arr", "to" }, body = 
         "var s = this.toString();\n" +
         "for (var i = 0; i < s.length; i++) {\n" +
-        "   arr[to++] = s[i];\n" +
+        "   arr[to++] = s.charCodeAt(i);\n" +
         "}"
     )
     native void getChars(char dst[], int dstBegin);
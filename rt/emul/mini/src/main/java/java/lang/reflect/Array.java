@@ -601,6 +601,12 @@ class Array {
         return Method.newArray(primitive, sig, fn, length);
     }
 
+    @Exported
+    private static Object newTypedArray(String sig, int length) {
+        Object arr = Method.newTypedArray(sig, length);
+        return arr != null ? arr : newArray(true, sig, null, length);
+    }
+
     @Exported
     private static boolean isInstance(Object arr, String sig)  {
         if (arr == null) {
@@ -635,18 +641,28 @@ class Array {
     @Exported
     private static Object multiNewArray(String sig, int[] dims, Object fn)
     throws IllegalArgumentException, NegativeArraySizeException {
-        return multiNewArray(sig, dims, 0, fn);
+        return multiNewArray(sig, dims, 0, fn, false);
     }
-    private static Object multiNewArray(String sig, int[] dims, int index, Object fn)
+    
+    @Exported
+    private static Object multiNewTypedArray(String sig, int[] dims)
+    throws IllegalArgumentException, NegativeArraySizeException {
+        return multiNewArray(sig, dims, 0, null, true);
+    }
+    
+    private static Object multiNewArray(String sig, int[] dims, int index, Object fn, boolean typed)
     throws IllegalArgumentException, NegativeArraySizeException {
         if (dims.length == index + 1) {
+            if (typed && sig.length() == 2) {
+                return newTypedArray(sig, dims[index]);
+            }
             return newArray(sig.length() == 2, sig, fn, dims[index]);
         }
         Object arr = newArray(false, sig, null, dims[index]);
         String compsig = sig.substring(1);
         int len = getLength(arr);
         for (int i = 0; i < len; i++) {
-            Method.setArray(arr, i, multiNewArray(compsig, dims, index + 1, fn));
+            Method.setArray(arr, i, multiNewArray(compsig, dims, index + 1, fn, typed));
         }
         return arr;
     }
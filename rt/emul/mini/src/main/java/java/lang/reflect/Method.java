@@ -760,6 +760,25 @@ public final
     )
     static native Object newArray(boolean primitive, String sig, Object fn, int length);
     
+    @JavaScriptBody(args = { "sig", "length" }, body =
+          "if (typeof Int32Array === 'undefined') return null;\n"
+        + "var c;\n"
+        + "switch (sig) {\n"
+        + "  case '[B': c = Int8Array; break;\n"
+        + "  case '[S': c = Int16Array; break;\n"
+        + "  case '[C': c = Uint16Array; break;\n"
+        + "  case '[I': c = Int32Array; break;\n"
+        + "  case '[F': c = Float32Array; break;\n"
+        + "  case '[D': c = Float64Array; break;\n"
+        + "  default: return null;\n"
+        + "}\n"
+        + "var arr = new c(length);\n"
+        + "Object.defineProperty(arr, 'jvmName', { 'configurable': true, 'writable': true, 'value': sig });\n"
+        + "Object.defineProperty(arr, 'fnc', { 'configurable': true, 'writable': true, 'value' : null });\n"
+        + "return arr;"
+    )
+    static native Object newTypedArray(String sig, int length);
+
     @JavaScriptBody(args = { "arr" }, body = "return arr.length;")
     static native int arrayLength(Object arr);
     
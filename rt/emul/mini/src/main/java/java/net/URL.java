@@ -1024,17 +1024,24 @@ public final class URL implements java.io.Serializable {
     )
     private static native String loadText(String url) throws Throwable;
 
-    @JavaScriptBody(args = { "url", "arr" }, body = ""
+    @JavaScriptBody(args = { "url" }, body = ""
         + "var request = new XMLHttpRequest();\n"
         + "request.open('GET', url, false);\n"
         + "request.overrideMimeType('text\\/plain; charset=x-user-defined');\n"
         + "request.send();\n"
         + "if (request.status === 0) throw 'Network error';\n"
-        + "var t = request.responseText;\n"
-        + "for (var i = 0; i < t.length; i++) arr.push(t.charCodeAt(i) & 0xff);\n"
-        + "return arr;\n"
+        + "return request.responseText;\n"
     )
-    private static native Object loadBytes(String url, byte[] arr) throws Throwable;
+    private static native String loadBinary(String url) throws Throwable;
+
+    private static byte[] loadBytes(String url) throws Throwable {
+        String t = loadBinary(url);
+        byte[] arr = new byte[t.length()];
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = (byte) t.charAt(i);
+        }
+        return arr;
+    }
 
     /**
      * Gets the contents of this URL. This method is a shorthand for:
@@ -1058,7 +1065,7 @@ public final class URL implements java.io.Serializable {
                     return loadText(toExternalForm());
                 }
                 if (c == byte[].class) {
-                    return loadBytes(toExternalForm(), new byte[0]);
+                    return loadBytes(toExternalForm());
                 }
             } catch (Throwable t) {
                 throw new IOException(t.getMessage());
@@ -31,6 +31,19 @@ public class System {
     }
 
     @JavaScriptBody(args = { "value", "srcBegin", "dst", "dstBegin", "count" }, body = 
+        "if (count > 0 && typeof dst.subarray === 'function'\n" +
+        "    && value.constructor === dst.constructor && srcBegin >= 0 && dstBegin >= 0\n" +
+        "    && srcBegin + count <= value.length && dstBegin + count <= dst.length\n" +
+        ") {\n" +
+        "    if (value !== dst) {\n" +
+        "        dst.set(value.subarray(srcBegin, srcBegin + count), dstBegin);\n" +
+        "        return;\n" +
+        "    }\n" +
+        "    if (typeof dst.copyWithin === 'function') {\n" +
+        "        dst.copyWithin(dstBegin, srcBegin, srcBegin + count);\n" +
+        "        return;\n" +
+        "    }\n" +
+        "}\n" +
         "if (srcBegin < dstBegin) {\n" +
         "    while (count-- > 0) {\n" +
         "        dst[dstBegin + count] = value[srcBegin + count];\n" +
@@ -51,14 +64,21 @@ public class System {
         }
     }
 
-    @JavaScriptBody(args = { "arr", "expectedSize" }, body = 
-        "while (expectedSize > arr.length) { arr.push(0); }; return arr;"
-    )
+    private static final String EXPAND_ARRAY =
+        "if (typeof arr.subarray === 'function') {\n" +
+        "    if (expectedSize <= arr.length) return arr;\n" +
+        "    var ret = new arr.constructor(expectedSize);\n" +
+        "    ret.set(arr);\n" +
+        "    Object.defineProperty(ret, 'jvmName', { 'configurable': true, 'writable': true, 'value': arr.jvmName });\n" +
+        "    Object.defineProperty(ret, 'fnc', { 'configurable': true, 'writable': true, 'value' : arr.fnc });\n" +
+        "    return ret;\n" +
+        "}\n" +
+        "while (expectedSize > arr.length) { arr.push(0); }; return arr;";
+
+    @JavaScriptBody(args = { "arr", "expectedSize" }, body = EXPAND_ARRAY)
     public static native byte[] expandArray(byte[] arr, int expectedSize);
 
-    @JavaScriptBody(args = { "arr", "expectedSize" }, body = 
-        "while (expectedSize > arr.length) { arr.push(0); }; return arr;"
-    )
+    @JavaScriptBody(args = { "arr", "expectedSize" }, body = EXPAND_ARRAY)
     public static native char[] expandArray(char[] arr, int expectedSize);
 
     @JavaScriptBody(args = {}, body = "return new Date().getTime();")
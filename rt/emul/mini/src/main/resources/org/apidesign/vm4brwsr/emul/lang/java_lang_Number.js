@@ -1,6 +1,8 @@
 // empty line needed here
 
 (function(numberPrototype) {
+    'use strict';
+
     numberPrototype.add32 = function(x) {
         return (this + x) | 0;
     };
@@ -21,38 +23,55 @@
         return (this << 16) >> 16;
     };
 
-    var __m32 = 0xFFFFFFFF;
+    var __p32 = 4294967296;
+    var __p52 = 4503599627370496;
+    var __p53 = 9007199254740992;
+    var __pow2 = [];
+    for (var __i = 0; __i < 64; __i++) {
+        __pow2.push(Math.pow(2, __i));
+    }
 
-    numberPrototype.next32 = function(low) {
-        if (this === 0) {
-            return low;
+    // longs in range (-2^53, 2^53) are plain numbers, the others are
+    // Number objects holding the unsigned low 32 bits with hi property
+    function __long(hi, low) {
+        if (hi > -0x200000 && hi < 0x200000) {
+            return hi * __p32 + low;
         }
         var l = new Number(low);
-        l.hi = this | 0;
+        l.hi = hi;
         return l;
+    }
+
+    numberPrototype.next32 = function(low) {
+        return __long(this | 0, low >>> 0);
     };
 
     numberPrototype.high32 = function() {
-        return this.hi ? this.hi : (Math.floor(this / (__m32 + 1))) | 0;
+        var hi = this.hi;
+        return hi === undefined ? Math.floor(this / __p32) | 0 : hi;
     };
     numberPrototype.toInt32 = function() {
         return this | 0;
     };
     numberPrototype.toFP = function() {
-        return this.hi ? this.hi * (__m32 + 1) + this : this;
+        var hi = this.hi;
+        return hi === undefined ? +this : hi * __p32 + (this >>> 0);
     };
     numberPrototype.toLong = function() {
-        var hi = (this / (__m32 + 1)) | 0;
-        var low = (this % (__m32 + 1)) | 0;
-        if (low < 0) {
-            low += __m32 + 1;
+        if (this > -__p53 && this < __p53) {
+            return (this < 0 ? Math.ceil(this) : Math.floor(this)) + 0;
         }
-
-        if (this < 0) {
-            hi -= 1;
+        if (this !== this) {
+            return 0;
         }
-
-        return hi.next32(low);
+        if (this >= __p32 * 0x80000000) {
+            return __long(0x7FFFFFFF, 0xFFFFFFFF);
+        }
+        if (this <= -__p32 * 0x80000000) {
+            return __long(0x80000000 | 0, 0);
+        }
+        var hi = Math.floor(this / __p32);
+        return __long(hi | 0, this - hi * __p32);
     };
 
     numberPrototype.toExactString = function() {
@@ -68,11 +87,11 @@
             var neg = this.hi < 0;
             if (neg) {
                 var x = this.neg64();
-                var hi = x.hi;
-                var low = x;
+                var hi = x.high32();
+                var low = x >>> 0;
             } else {
                 var hi = this.hi;
-                var low = this;
+                var low = this >>> 0;
             }
             for (var i = 0; i < a.length; i++) {
                 res += hi * a[i];
@@ -95,134 +114,148 @@
     };
 
     numberPrototype.add64 = function(x) {
-        var low = this + x;
-        carry = 0;
-        if (low > __m32) {
+        if (typeof this === 'number' && typeof x === 'number') {
+            var r = this + x;
+            if (r > -__p53 && r < __p53) {
+                return r;
+            }
+        }
+        var low = (this >>> 0) + (x >>> 0);
+        var carry = 0;
+        if (low >= __p32) {
             carry = 1;
-            low -= (__m32 + 1);
+            low -= __p32;
         }
-        var hi = (this.high32() + x.high32() + carry) | 0;
-        return hi.next32(low);
+        return __long((this.high32() + x.high32() + carry) | 0, low);
     };
 
     numberPrototype.sub64 = function(x) {
-        var low = this - x;
-        carry = 0;
+        if (typeof this === 'number' && typeof x === 'number') {
+            var r = this - x;
+            if (r > -__p53 && r < __p53) {
+                return r;
+            }
+        }
+        var low = (this >>> 0) - (x >>> 0);
+        var carry = 0;
         if (low < 0) {
             carry = 1;
-            low += (__m32 + 1);
+            low += __p32;
         }
-        var hi = (this.high32() - x.high32() - carry) | 0;
-        return hi.next32(low);
+        return __long((this.high32() - x.high32() - carry) | 0, low);
     };
 
     numberPrototype.mul64 = function(x) {
-        var low = this.mul32(x);
-        low += (low < 0) ? (__m32 + 1) : 0;
-        // first count upper 32 bits of (this.low * x.low)
-        var hi_hi = 0;
-        var hi_low = 0;
-        var m = 1;
-        for (var i = 0; i < 32; i++) {
-            if (x & m) {
-                hi_hi += this >>> 16;
-                hi_low += this & 0xFFFF
+        if (typeof this === 'number' && typeof x === 'number') {
+            var r = this * x;
+            if (r > -__p53 && r < __p53) {
+                // avoid -0
+                return r + 0;
             }
-            hi_low >>= 1;
-            hi_low += (hi_hi & 1) ? 0x8000 : 0;
-            hi_hi >>= 1;
-            m <<= 1;
         }
-        var hi = (hi_hi << 16) + hi_low;
-
-        var m1 = this.high32().mul32(x);
-        var m2 = this.mul32(x.high32());
-        hi = hi.add32(m1).add32(m2);
-
-        return hi.next32(low);
+        // multiply 16-bit digits of both operands
+        var hi = this.high32();
+        var low = this >>> 0;
+        var xhi = x.high32();
+        var xlow = x >>> 0;
+        var a48 = hi >>> 16, a32 = hi & 0xFFFF;
+        var a16 = low >>> 16, a00 = low & 0xFFFF;
+        var b48 = xhi >>> 16, b32 = xhi & 0xFFFF;
+        var b16 = xlow >>> 16, b00 = xlow & 0xFFFF;
+
+        var c00 = a00 * b00;
+        var c16 = c00 >>> 16;
+        c00 &= 0xFFFF;
+        c16 += a16 * b00;
+        var c32 = c16 >>> 16;
+        c16 &= 0xFFFF;
+        c16 += a00 * b16;
+        c32 += c16 >>> 16;
+        c16 &= 0xFFFF;
+        c32 += a32 * b00;
+        var c48 = c32 >>> 16;
+        c32 &= 0xFFFF;
+        c32 += a16 * b16;
+        c48 += c32 >>> 16;
+        c32 &= 0xFFFF;
+        c32 += a00 * b32;
+        c48 += c32 >>> 16;
+        c32 &= 0xFFFF;
+        c48 += a48 * b00 + a32 * b16 + a16 * b32 + a00 * b48;
+        c48 &= 0xFFFF;
+        return __long((c48 << 16) | c32, ((c16 << 16) | c00) >>> 0);
     };
 
     numberPrototype.and64 = function(x) {
-        var low = this & x;
-        low += (low < 0) ? (__m32 + 1) : 0;
-        if (this.hi && x.hi) {
-            var hi = this.hi & x.hi;
-            return hi.next32(low);
-        }
-        ;
-        return low;
+        if ((this | 0) === this && (x | 0) === x) {
+            return this & x;
+        }
+        return __long(this.high32() & x.high32(), (this & x) >>> 0);
     };
 
     numberPrototype.or64 = function(x) {
-        var low = this | x;
-        low += (low < 0) ? (__m32 + 1) : 0;
-        if (this.hi || x.hi) {
-            var hi = this.hi | x.hi;
-            return hi.next32(low);
-        }
-        ;
-        return low;
+        if ((this | 0) === this && (x | 0) === x) {
+            return this | x;
+        }
+        return __long(this.high32() | x.high32(), (this | x) >>> 0);
     };
 
     numberPrototype.xor64 = function(x) {
-        var low = this ^ x;
-        low += (low < 0) ? (__m32 + 1) : 0;
-        if (this.hi || x.hi) {
-            var hi = this.hi ^ x.hi;
-            return hi.next32(low);
-        }
-        ;
-        return low;
+        if ((this | 0) === this && (x | 0) === x) {
+            return this ^ x;
+        }
+        return __long(this.high32() ^ x.high32(), (this ^ x) >>> 0);
     };
 
     numberPrototype.shl64 = function(x) {
         x &= 0x3f;
-        if (x == 0) return this;
+        if (typeof this === 'number') {
+            var r = this * __pow2[x];
+            if (r > -__p53 && r < __p53) {
+                return r;
+            }
+        }
+        var hi = this.high32();
+        var low = this >>> 0;
         if (x >= 32) {
-            var hi = this << (x - 32);
-            return hi.next32(0);
-        } else {
-            var hi = this.high32() << x;
-            var low_reminder = this >> (32 - x);
-            hi |= low_reminder;
-            var low = this << x;
-            low += (low < 0) ? (__m32 + 1) : 0;
-            return hi.next32(low);
+            return __long(low << (x - 32), 0);
+        }
+        if (x == 0) {
+            return __long(hi, low);
         }
+        return __long((hi << x) | (low >>> (32 - x)), (low << x) >>> 0);
     };
 
     numberPrototype.shr64 = function(x) {
         x &= 0x3f;
-        if (x == 0) return this;
+        if (typeof this === 'number') {
+            return Math.floor(this / __pow2[x]);
+        }
+        var hi = this.high32();
+        var low = this >>> 0;
         if (x >= 32) {
-            var low = this.high32() >> (x - 32);
-            low += (low < 0) ? (__m32 + 1) : 0;
-            return low;
-        } else {
-            var low = this >>> x;
-            var hi_reminder = this.high32() << (32 - x);
-            low |= hi_reminder;
-            low += (low < 0) ? (__m32 + 1) : 0;
-            var hi = this.high32() >> x;
-            return hi.next32(low);
+            return __long(hi >> 31, (hi >> (x - 32)) >>> 0);
+        }
+        if (x == 0) {
+            return __long(hi, low);
         }
+        return __long(hi >> x, ((low >>> x) | (hi << (32 - x))) >>> 0);
     };
 
     numberPrototype.ushr64 = function(x) {
         x &= 0x3f;
-        if (x == 0) return this;
+        if (typeof this === 'number' && this >= 0) {
+            return Math.floor(this / __pow2[x]);
+        }
+        var hi = this.high32();
+        var low = this >>> 0;
         if (x >= 32) {
-            var low = this.high32() >>> (x - 32);
-            low += (low < 0) ? (__m32 + 1) : 0;
-            return low;
-        } else {
-            var low = this >>> x;
-            var hi_reminder = this.high32() << (32 - x);
-            low |= hi_reminder;
-            low += (low < 0) ? (__m32 + 1) : 0;
-            var hi = this.high32() >>> x;
-            return hi.next32(low);
+            return __long(0, hi >>> (x - 32));
+        }
+        if (x == 0) {
+            return __long(hi, low);
         }
+        return __long(hi >>> x, ((low >>> x) | (hi << (32 - x))) >>> 0);
     };
 
     // keeping for compatibility with generated bck2brwsr.js library files
@@ -236,23 +269,29 @@
     };
 
     numberPrototype.compare64 = function(x) {
-        if (this.high32() === x.high32()) {
+        if (typeof this === 'number' && typeof x === 'number') {
             return (this < x) ? -1 : ((this > x) ? 1 : 0);
         }
-        return (this.high32() < x.high32()) ? -1 : 1;
+        var hi = this.high32();
+        var xhi = x.high32();
+        if (hi !== xhi) {
+            return (hi < xhi) ? -1 : 1;
+        }
+        var low = this >>> 0;
+        var xlow = x >>> 0;
+        return (low < xlow) ? -1 : ((low > xlow) ? 1 : 0);
     };
 
     numberPrototype.neg64 = function() {
-        var hi = this.high32();
-        var low = this;
-        if ((hi === 0) && (low < 0)) {
-            return -low;
-        }
-        hi = ~hi;
-        low = ~low;
-        low += (low < 0) ? (__m32 + 1) : 0;
-        var ret = hi.next32(low);
-        return ret.add64(1);
+        if (typeof this === 'number') {
+            return 0 - this;
+        }
+        var hi = ~this.high32();
+        var low = (~this >>> 0) + 1;
+        if (low === __p32) {
+            return __long((hi + 1) | 0, 0);
+        }
+        return __long(hi, low);
     };
     
     function __handleDivByZero() {
@@ -507,6 +546,14 @@
     }
 
     numberPrototype.div64 = function(x) {
+        if (typeof this === 'number' && typeof x === 'number'
+            && this > -__p52 && this < __p52 && x > -__p52 && x < __p52) {
+            if (x === 0) {
+                __handleDivByZero();
+            }
+            var q = this / x;
+            return (q < 0 ? Math.ceil(q) : Math.floor(q)) + 0;
+        }
         var negateResult = false;
         var u, v;
 
@@ -530,7 +577,7 @@
 
         if (u.high32() === 0) {
             if (v.high32() === 0) {
-                var result = (u / v) | 0;
+                var result = Math.floor(u / v);
                 return negateResult ? result.neg64() : result; 
             }
 
@@ -549,6 +596,12 @@
     }
 
     numberPrototype.mod64 = function(x) {
+        if (typeof this === 'number' && typeof x === 'number') {
+            if (x === 0) {
+                __handleDivByZero();
+            }
+            return (this % x) + 0;
+        }
         var negateResult = false;
         var u, v;
         
@@ -28,3 +28,16 @@ Object.defineProperty(Array.prototype, "clone__Ljava_lang_Object_2", { configura
   ret.fnc = this.fnc;
   return ret;
 }});
+// primitive arrays may be backed by typed arrays, see Array.newTypedArray
+(function(typedArrays) {
+  for (var i = 0; i < typedArrays.length; i++) {
+    var proto = typedArrays[i].prototype;
+    Object.defineProperty(proto, "getClass__Ljava_lang_Class_2", { configurable: true, writable: true, value : Array.prototype["getClass__Ljava_lang_Class_2"] });
+    Object.defineProperty(proto, "clone__Ljava_lang_Object_2", { configurable: true, writable: true, value : function() {
+      var ret = new this.constructor(this);
+      Object.defineProperty(ret, 'jvmName', { 'configurable': true, 'writable': true, 'value': this.jvmName });
+      Object.defineProperty(ret, 'fnc', { 'configurable': true, 'writable': true, 'value' : this.fnc });
+      return ret;
+    }});
+  }
+})(typeof Int32Array === 'undefined' ? [] : [ Int8Array, Int16Array, Uint16Array, Int32Array, Float32Array, Float64Array ]);
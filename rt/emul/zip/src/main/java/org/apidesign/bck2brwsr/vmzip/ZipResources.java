@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import org.apidesign.bck2brwsr.core.Exported;
 import org.apidesign.bck2brwsr.core.JavaScriptBody;
+import org.apidesign.bck2brwsr.emul.lang.System;
 import org.apidesign.bck2brwsr.emul.zip.FastJar;
 import org.apidesign.vm4brwsr.Bck2Brwsr;
 
@@ -75,11 +76,31 @@ public final class ZipResources implements Bck2Brwsr.Resources {
     @JavaScriptBody(args = { "res", "arr" }, body = "this[res] = arr;")
     private native void putRes(String res, Object arr);
     
-    @JavaScriptBody(args = { "arr", "len" }, body = "while (arr.length < len) arr.push(0);")
-    private static native void enlargeBytes(byte[] arr, int len);
+    @JavaScriptBody(args = { "arr", "len" }, body = 
+        "if (typeof arr.push !== 'function') return null;\n" +
+        "while (arr.length < len) arr.push(0);\n" +
+        "return arr;"
+    )
+    private static native byte[] enlargeBytes0(byte[] arr, int len);
+
+    @JavaScriptBody(args = { "arr", "len" }, body = 
+        "if (typeof arr.splice !== 'function') return null;\n" +
+        "arr.splice(len, arr.length - len);\n" +
+        "return arr;"
+    )
+    private static native byte[] sliceArray0(byte[] arr, int len);
 
-    @JavaScriptBody(args = { "arr", "len" }, body = "arr.splice(len, arr.length - len);")
-    private static native void sliceArray(byte[] arr, int len);
+    /** Resizes the array in place, if it is a plain JavaScript one, or
+     * copies it into a new one of the requested length.
+     */
+    private static byte[] resize(byte[] arr, int len) {
+        byte[] ret = len > arr.length ? enlargeBytes0(arr, len) : sliceArray0(arr, len);
+        if (ret == null) {
+            ret = new byte[len];
+            System.arraycopy(arr, 0, ret, 0, Math.min(arr.length, len));
+        }
+        return ret;
+    }
 
     private static Object readFully(byte[] arr, InputStream zip) throws IOException {
         int offset = 0;
@@ -90,11 +111,10 @@ public final class ZipResources implements Bck2Brwsr.Resources {
             }
             offset += len;
             if (offset == arr.length) {
-                enlargeBytes(arr, arr.length + 4096);
+                arr = resize(arr, arr.length + 4096);
             }
         }
-        sliceArray(arr, offset);
-        return arr;
+        return offset == arr.length ? arr : resize(arr, offset);
     }
 
     @JavaScriptBody(args = {}, body = 
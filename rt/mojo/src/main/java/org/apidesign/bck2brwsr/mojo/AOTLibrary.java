@@ -45,6 +45,7 @@ import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
 import org.apidesign.bck2brwsr.aot.Bck2BrwsrJars;
 import org.apidesign.vm4brwsr.Bck2Brwsr;
+import org.apidesign.vm4brwsr.ClassCache;
 import org.apidesign.vm4brwsr.ObfuscationLevel;
 
 /**
@@ -81,8 +82,26 @@ public class AOTLibrary extends AbstractMojo {
     @Parameter(defaultValue = "true")
     private boolean ignoreBootClassPath;
 
+    /**
+     * Directory to keep translated classes in. Classes that have not
+     * changed since the previous build are not translated again.
+     *
+     * @since 1.0
+     */
+    @Parameter(defaultValue = "${project.build.directory}/bck2brwsr-cache")
+    private File cache;
+
+    /**
+     * Back arrays of primitive numeric types by JavaScript typed arrays.
+     *
+     * @since 1.0
+     */
+    @Parameter(defaultValue = "false")
+    private boolean typedArrays;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
+        final ClassCache classes = ClassCache.create();
         URLClassLoader loader;
         try {
             loader = buildClassLoader(mainJar, prj.getArtifacts());
@@ -137,25 +156,10 @@ public class AOTLibrary extends AbstractMojo {
             FileOutputStream fos = new FileOutputStream(this.aotJar);
             JarOutputStream os = new JarOutputStream(fos, m);
 
-            if (!"false".equals(debug)) {
-                os.putNextEntry(new JarEntry(debug));
-                Writer w = new OutputStreamWriter(os, "UTF-8");
-                configureMain(loader).
-                    obfuscation(ObfuscationLevel.NONE).
-                    generate(w);
-                w.flush();
-                os.closeEntry();
-            }
-            if (!"false".equals(minified)) {
-                os.putNextEntry(new JarEntry(minified));
-            
-                Writer w = new OutputStreamWriter(os, "UTF-8");
-                configureMain(loader).
-                    obfuscation(ObfuscationLevel.FULL).
-                    generate(w);
-                w.flush();
-                os.closeEntry();
-            }
+            generate(os, configureMain(loader, classes),
+                "false".equals(debug) ? null : debug,
+                "false".equals(minified) ? null : minified
+            );
             
             if (aotDeps != null) {
                 for (Artifact a : prj.getArtifacts()) {
@@ -163,34 +167,18 @@ public class AOTLibrary extends AbstractMojo {
                         continue;
                     }
                     getLog().info("Generating bck2brwsr for " + a.getFile());
-                    Bck2Brwsr c = Bck2BrwsrJars.configureFrom(null, a.getFile(), loader, ignoreBootClassPath);
+                    Bck2Brwsr c = Bck2BrwsrJars.configureFrom(null, a.getFile(), loader, ignoreBootClassPath).
+                        cache(cache).classCache(classes).typedArrays(typedArrays);
                     if (exports != null) {
                         for (String e : exports) {
                             c = c.addExported(e.replace('.', '/'));
                         }
                     }
-                    {
-                        os.putNextEntry(new JarEntry(artifactName(a, true)));
-                        Writer w = new OutputStreamWriter(os, "UTF-8");
-                        c.
-                            obfuscation(ObfuscationLevel.NONE).
-                            generate(w);
-                        w.flush();
-                        os.closeEntry();
-                    }
-                    {
-                        os.putNextEntry(new JarEntry(artifactName(a, false)));
-
-                        Writer w = new OutputStreamWriter(os, "UTF-8");
-                        c.
-                            obfuscation(ObfuscationLevel.FULL).
-                            generate(w);
-                        w.flush();
-                        os.closeEntry();
-                    }                    
+                    generate(os, c, artifactName(a, true), artifactName(a, false));
                 }
             }
             os.close();
+            getLog().info("Parsed classes: " + classes);
             
             projectHelper.attachArtifact(prj, "jar", "bck2brwsr", aotJar);
         } catch (IOException ex) {
@@ -198,8 +186,9 @@ public class AOTLibrary extends AbstractMojo {
         }
     }
 
-    private Bck2Brwsr configureMain(URLClassLoader loader) throws IOException {
-        Bck2Brwsr c = Bck2BrwsrJars.configureFrom(null, mainJar, loader, ignoreBootClassPath);
+    private Bck2Brwsr configureMain(URLClassLoader loader, ClassCache classes) throws IOException {
+        Bck2Brwsr c = Bck2BrwsrJars.configureFrom(null, mainJar, loader, ignoreBootClassPath).
+            cache(cache).classCache(classes).typedArrays(typedArrays);
         if (exports != null) {
             for (String e : exports) {
                 c = c.addExported(e.replace('.', '/'));
@@ -208,6 +197,44 @@ public class AOTLibrary extends AbstractMojo {
         return c;
     }
 
+    /** Translates the classes once and stores debug as well as
+     * minified version of the script into the JAR.
+     *
+     * @param debugName name of the entry for debug version or <code>null</code>
+     * @param minifiedName name of the entry for minified version or <code>null</code>
+     */
+    private static void generate(
+        JarOutputStream os, Bck2Brwsr c, String debugName, String minifiedName
+    ) throws IOException {
+        if (debugName == null && minifiedName == null) {
+            return;
+        }
+        final StringBuilder min = new StringBuilder();
+        if (debugName != null) {
+            os.putNextEntry(new JarEntry(debugName));
+            Writer w = new OutputStreamWriter(os, "UTF-8");
+            if (minifiedName != null) {
+                c.generate(
+                    new Appendable[] { w, min },
+                    new ObfuscationLevel[] { ObfuscationLevel.NONE, ObfuscationLevel.FULL }
+                );
+            } else {
+                c.obfuscation(ObfuscationLevel.NONE).generate(w);
+            }
+            w.flush();
+            os.closeEntry();
+        } else {
+            c.obfuscation(ObfuscationLevel.FULL).generate(min);
+        }
+        if (minifiedName != null) {
+            os.putNextEntry(new JarEntry(minifiedName));
+            Writer w = new OutputStreamWriter(os, "UTF-8");
+            w.append(min);
+            w.flush();
+            os.closeEntry();
+        }
+    }
+
     private static String artifactName(Artifact a, boolean debug) {
         return a.getGroupId() + "-" + a.getArtifactId() + (debug ? "-debug.js" : "-min.js");
     }
@@ -46,6 +46,7 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 import org.apidesign.bck2brwsr.aot.Bck2BrwsrJars;
 import org.apidesign.vm4brwsr.Bck2Brwsr;
+import org.apidesign.vm4brwsr.ClassCache;
 import org.apidesign.vm4brwsr.ObfuscationLevel;
 
 /**
@@ -95,8 +96,26 @@ public class AheadOfTime extends AbstractMojo {
     @Parameter(defaultValue = "NONE")
     private ObfuscationLevel obfuscation;
     
+    /**
+     * Directory to keep translated classes in. Classes that have not
+     * changed since the previous build are not translated again.
+     *
+     * @since 1.0
+     */
+    @Parameter(defaultValue = "${project.build.directory}/bck2brwsr-cache")
+    private File cache;
+
+    /**
+     * Back arrays of primitive numeric types by JavaScript typed arrays.
+     *
+     * @since 1.0
+     */
+    @Parameter(defaultValue = "false")
+    private boolean typedArrays;
+    
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
+        final ClassCache classes = ClassCache.create();
         URLClassLoader loader;
         try {
             loader = buildClassLoader(mainJar, prj.getArtifacts());
@@ -122,7 +141,7 @@ public class AheadOfTime extends AbstractMojo {
                 continue;
             }
             try {
-                aotLibrary(a, js , loader);
+                aotLibrary(a, js , loader, classes);
             } catch (IOException ex) {
                 throw new MojoFailureException("Can't compile " + a.getFile(), ex);
             }
@@ -133,7 +152,8 @@ public class AheadOfTime extends AbstractMojo {
                 getLog().info("Skipping " + mainJavaScript + " as it already exists.");
             } else {
                 getLog().info("Generating " + mainJavaScript);
-                Bck2Brwsr c = Bck2BrwsrJars.configureFrom(null, mainJar, loader, ignoreBootClassPath);
+                Bck2Brwsr c = Bck2BrwsrJars.configureFrom(null, mainJar, loader, ignoreBootClassPath).
+                    cache(cache).classCache(classes).typedArrays(typedArrays);
                 if (exports != null) {
                     for (String e : exports) {
                         c = c.addExported(e.replace('.', '/'));
@@ -148,6 +168,7 @@ public class AheadOfTime extends AbstractMojo {
         } catch (IOException ex) {
             throw new MojoFailureException("Cannot generate script for " + mainJar, ex);
         }
+        getLog().info("Parsed classes: " + classes);
             
         try {
             Writer w = new OutputStreamWriter(new FileOutputStream(vm), "UTF-8");
@@ -169,7 +190,7 @@ public class AheadOfTime extends AbstractMojo {
         }
     }
 
-    private void aotLibrary(Artifact a, File js, URLClassLoader loader) throws IOException, MojoExecutionException {
+    private void aotLibrary(Artifact a, File js, URLClassLoader loader, ClassCache classes) throws IOException, MojoExecutionException {
         for (Artifact b : prj.getArtifacts()) {
             if ("bck2brwsr".equals(b.getClassifier())) { // NOI18N
                 getLog().debug("Inspecting " + b.getFile());
@@ -203,7 +224,8 @@ public class AheadOfTime extends AbstractMojo {
         }
         getLog().info("Generating " + js);
         Writer w = new OutputStreamWriter(new FileOutputStream(js), "UTF-8");
-        Bck2Brwsr c = Bck2BrwsrJars.configureFrom(null, a.getFile(), loader, ignoreBootClassPath);
+        Bck2Brwsr c = Bck2BrwsrJars.configureFrom(null, a.getFile(), loader, ignoreBootClassPath).
+            cache(cache).classCache(classes).typedArrays(typedArrays);
         if (exports != null) {
             c = c.addExported(exports);
         }
@@ -86,6 +86,17 @@ public class Java2JavaScript extends AbstractMojo {
     @Parameter(defaultValue="false")
     private boolean library;
 
+    /**
+     * Removes methods the compiled classes cannot call. Names of the
+     * removed methods are written into a file next to the generated
+     * <code>javascript</code> with additional <code>.removed</code> suffix.
+     * Not applicable to {@link #library libraries}.
+     *
+     * @since 1.0
+     */
+    @Parameter(defaultValue="false")
+    private boolean treeShaking;
+
     @Override
     public void execute() throws MojoExecutionException {
         if (!classes.isDirectory()) {
@@ -117,8 +128,20 @@ public class Java2JavaScript extends AbstractMojo {
             if (library) {
                 c = c.library();
             }
+            StringBuilder removed = null;
+            if (treeShaking && !library) {
+                removed = new StringBuilder();
+                c = c.treeShaking(removed);
+            }
             c.generate(w);
             w.close();
+            if (removed != null) {
+                File report = new File(javascript.getPath() + ".removed");
+                Writer r = new OutputStreamWriter(new FileOutputStream(report), "UTF-8");
+                r.append(removed);
+                r.close();
+                getLog().info("Removed methods are listed in " + report);
+            }
         } catch (IOException ex) {
             throw new MojoExecutionException("Can't compile", ex);
         }
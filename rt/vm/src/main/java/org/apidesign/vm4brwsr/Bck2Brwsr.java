@@ -17,6 +17,7 @@
  */
 package org.apidesign.vm4brwsr;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -82,6 +83,17 @@ public final class Bck2Brwsr {
     private final Resources res;
     private final Boolean extension;
     private final StringArray classpath;
+    // not passed to the constructor, set on a copy() before it is returned
+    private int parallelism = 1;
+    private File cache;
+    private ClassCache classCache;
+    private boolean typedArrays;
+    private boolean directFields;
+    private boolean inline;
+    private boolean hoistClasses;
+    private boolean structuredFlow;
+    private boolean treeShaking;
+    private Appendable removed;
 
     private Bck2Brwsr(
             ObfuscationLevel level, 
@@ -97,6 +109,32 @@ public final class Bck2Brwsr {
         this.extension = extension;
         this.classpath = classpath;
     }
+
+    /** Copy of <code>this</code> to override some of the values in. */
+    private Bck2Brwsr copy() {
+        return copy(new Bck2Brwsr(
+            level, exported, classes, resources, res, extension, classpath
+        ));
+    }
+
+    /** Copies values not passed to the constructor from <code>this</code>.
+     *
+     * @param b newly created instance
+     * @return <code>b</code>
+     */
+    private Bck2Brwsr copy(Bck2Brwsr b) {
+        b.parallelism = parallelism;
+        b.cache = cache;
+        b.classCache = classCache;
+        b.typedArrays = typedArrays;
+        b.directFields = directFields;
+        b.inline = inline;
+        b.hoistClasses = hoistClasses;
+        b.structuredFlow = structuredFlow;
+        b.treeShaking = treeShaking;
+        b.removed = removed;
+        return b;
+    }
     
     /** Helper method to generate virtual machine from bytes served by a <code>resources</code>
      * provider.
@@ -154,10 +192,10 @@ public final class Bck2Brwsr {
      *   all values from <code>this</code> except list of exported classes
      */
     public Bck2Brwsr addExported(String... exported) {
-        return new Bck2Brwsr(
+        return copy(new Bck2Brwsr(
             level, this.exported.addAndNew(exported), 
             classes, resources, res, extension, classpath
-        );
+        ));
     }
 
     /** Adds additional classes 
@@ -195,9 +233,9 @@ public final class Bck2Brwsr {
         if (classes.length == 0) {
             return this;
         } else {
-            return new Bck2Brwsr(level, exported, 
+            return copy(new Bck2Brwsr(level, exported, 
                 this.classes.addAndNew(classes), resources, res,
-                extension, classpath);
+                extension, classpath));
         }
     }
     
@@ -216,9 +254,9 @@ public final class Bck2Brwsr {
         if (resources.length == 0) {
             return this;
         } else {
-            return new Bck2Brwsr(level, exported, this.classes, 
+            return copy(new Bck2Brwsr(level, exported, this.classes, 
                 this.resources.addAndNew(resources), res, extension, classpath
-            );
+            ));
         }
     }
     
@@ -231,7 +269,7 @@ public final class Bck2Brwsr {
      * @since 0.5
      */
     public Bck2Brwsr obfuscation(ObfuscationLevel level) {
-        return new Bck2Brwsr(level, exported, classes, resources, res, extension, classpath);
+        return copy(new Bck2Brwsr(level, exported, classes, resources, res, extension, classpath));
     }
     
     /** A way to change the provider of additional resources (classes) for the 
@@ -243,10 +281,10 @@ public final class Bck2Brwsr {
      * @since 0.5
      */
     public Bck2Brwsr resources(Resources res) {
-        return new Bck2Brwsr(
+        return copy(new Bck2Brwsr(
             level, exported, classes, resources, 
             res, extension, classpath
-        );
+        ));
     }
 
     /** Should one generate a library? By default the system generates
@@ -269,11 +307,11 @@ public final class Bck2Brwsr {
      * @since 0.9
      */
     public Bck2Brwsr library(String... classpath) {
-        return new Bck2Brwsr(
+        return copy(new Bck2Brwsr(
             level, exported, classes, 
             resources, res, true, 
             StringArray.asList(classpath)
-        );
+        ));
     }
     
     /** Turns on the standalone mode. E.g. does the opposite of
@@ -287,10 +325,251 @@ public final class Bck2Brwsr {
      * @since 0.9
      */
     public Bck2Brwsr standalone(boolean includeVM) {
-        return new Bck2Brwsr(
+        return copy(new Bck2Brwsr(
             level, exported, classes, resources, 
             res, includeVM ? false : null, null
-        );
+        ));
+    }
+
+    /** Translates classes in parallel. By default the compiler translates
+     * one class after another. With parallelism bigger than one, the
+     * classes are parsed and translated on a pool of the specified number
+     * of threads. The generated code remains exactly the same as in the
+     * serial mode. When using parallel compilation, make sure the
+     * {@link Resources provider of resources} can be accessed
+     * from multiple threads at once.
+     * 
+     * @param parallelism the number of threads to use, <code>1</code>
+     *   means serial compilation
+     * @return new instance of the compiler with all values remaining the same,
+     *   just with different parallelism
+     * @since 1.0
+     */
+    public Bck2Brwsr parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        Bck2Brwsr b = copy();
+        b.parallelism = parallelism;
+        return b;
+    }
+
+    /** Keeps translated classes in a directory. Classes are stored in
+     * the directory after translation and next time they are reused,
+     * unless the class or any other class it depends on changes. Pointing
+     * subsequent compilations of the same classes to the same directory
+     * makes them significantly faster. The directory may be shared by
+     * compilations with different configuration. Optimizations analyzing
+     * the whole program ({@link #inline(boolean) inlining} and
+     * {@link #treeShaking(boolean) tree shaking}) cannot be combined
+     * with the cache, {@link #generate(java.lang.Appendable)} throws
+     * {@link IllegalStateException} when any of them is requested.
+     * 
+     * @param dir the directory to keep translated classes in or
+     *   <code>null</code> to translate all classes from scratch
+     * @return new instance of the compiler with all values remaining the same,
+     *   just caching translated classes in given directory
+     * @since 1.0
+     */
+    public Bck2Brwsr cache(File dir) {
+        Bck2Brwsr b = copy();
+        b.cache = dir;
+        return b;
+    }
+
+    /** Shares parsed classes with other compilations. Compilations
+     * using the same {@link ClassCache} parse each class file only once,
+     * even if they use different {@link Resources}.
+     * 
+     * @param cache the cache to use or <code>null</code> to parse
+     *   classes only for this compilation
+     * @return new instance of the compiler with all values remaining the same,
+     *   just sharing parsed classes via given cache
+     * @since 1.0
+     */
+    public Bck2Brwsr classCache(ClassCache cache) {
+        Bck2Brwsr b = copy();
+        b.classCache = cache;
+        return b;
+    }
+
+    /** Backs primitive arrays by JavaScript typed arrays. Arrays of
+     * <code>byte</code>, <code>short</code>, <code>char</code>,
+     * <code>int</code>, <code>float</code> and <code>double</code>
+     * allocated by the generated code are then represented as
+     * <code>Int8Array</code>, <code>Int16Array</code>, <code>Uint16Array</code>,
+     * <code>Int32Array</code>, <code>Float32Array</code> and 
+     * <code>Float64Array</code> rather than plain JavaScript arrays, which
+     * speeds up numeric code. Arrays of <code>boolean</code> and 
+     * <code>long</code> remain plain JavaScript arrays. Code compiled with
+     * and without typed arrays can be mixed, as the runtime accepts both
+     * kinds of arrays. However JavaScript code that manipulates Java
+     * arrays directly (resizes them via <code>push</code> or 
+     * <code>splice</code>, or stores single character strings
+     * into <code>char[]</code>) needs to be adjusted.
+     * 
+     * @param typedArrays <code>true</code> to use typed arrays,
+     *   <code>false</code> to use plain JavaScript arrays
+     * @return new instance of the compiler with all values remaining the same,
+     *   just with different representation of primitive arrays
+     * @since 1.0
+     */
+    public Bck2Brwsr typedArrays(boolean typedArrays) {
+        Bck2Brwsr b = copy();
+        b.typedArrays = typedArrays;
+        return b;
+    }
+
+    /** Controls how the generated code reads and writes fields. By default
+     * fields are accessed via the accessor functions <code>_name</code>.
+     * When direct access is turned on, a field whose declaring class is
+     * compiled together with the accessing code is accessed directly as
+     * a property of the object (<code>obj.fld_Class_name</code>) or of
+     * the class (<code>CLS.fld_name</code>). That is faster, but
+     * JavaScript code replacing the accessors no longer intercepts such
+     * field access. The accessors are still generated and used for fields
+     * of external classes and by reflection.
+     *
+     * @param directFields <code>true</code> to access fields directly,
+     *   <code>false</code> to always go through the accessor functions
+     * @return new instance of the compiler with all values remaining the same,
+     *   just with different way of accessing fields
+     * @since 1.0
+     */
+    public Bck2Brwsr directFields(boolean directFields) {
+        Bck2Brwsr b = copy();
+        b.directFields = directFields;
+        return b;
+    }
+
+    /** Enables inlining of trivial methods. Calls to methods whose body
+     * only reads a field (possibly through a chain of fields, if
+     * {@link #directFields(boolean) direct access to fields} is on) or
+     * returns a constant are replaced by the expression itself, if the call
+     * cannot dispatch elsewhere. That is the case for private and
+     * <code>super</code> calls, for final methods and methods of
+     * final classes and for static methods of classes known to be
+     * initialized (the class itself and, with
+     * {@link #hoistClasses(boolean) hoisting} on, its superclass and
+     * classes already resolved in the method). When generating a whole program (not a
+     * {@link #library(java.lang.String...) library}), the compiler also analyzes
+     * the hierarchy of all classes reachable from the root ones and
+     * inlines calls to methods no subclass overrides. Classes loaded
+     * later (for example by a loader function) then must not
+     * override methods of the compiled classes. Inlining cannot be
+     * combined with a {@link #cache(java.io.File) cache},
+     * {@link #generate(java.lang.Appendable)} throws
+     * {@link IllegalStateException} when both are set.
+     *
+     * @param inline <code>true</code> to inline trivial methods
+     * @return new instance of the compiler with all values remaining the same,
+     *   just with inlining turned on or off
+     * @since 1.0
+     */
+    public Bck2Brwsr inline(boolean inline) {
+        Bck2Brwsr b = copy();
+        b.inline = inline;
+        return b;
+    }
+
+    /** Resolves references to other classes once per method. By default
+     * each use of another class checks whether the class has already been
+     * resolved. With this option on, the compiler analyzes the flow of
+     * each method and when a class is used repeatedly, it resolves the
+     * class into a local variable on the first use and accesses the
+     * variable afterwards. The superclass is resolved once when the
+     * class is defined. Classes are still initialized in the same
+     * order.
+     *
+     * @param hoistClasses <code>true</code> to resolve classes once per method
+     * @return new instance of the compiler with all values remaining the same,
+     *   just with different way of resolving classes
+     * @since 1.0
+     */
+    public Bck2Brwsr hoistClasses(boolean hoistClasses) {
+        Bck2Brwsr b = copy();
+        b.hoistClasses = hoistClasses;
+        return b;
+    }
+
+    /** Generates branches as JavaScript loops and labeled blocks. By
+     * default each method with branches is generated as a state machine
+     * where every jump assigns the target to a dispatch variable. With
+     * this option on, backward jumps become <code>continue</code> and
+     * forward jumps <code>break</code> statements, which makes the code
+     * smaller and faster on Nashorn. On V8 the structured code can be
+     * slower unless {@link #directFields(boolean) fields are accessed
+     * directly}. Methods whose jumps do not fit into nested loops and
+     * blocks are still generated as a state machine.
+     *
+     * @param structuredFlow <code>true</code> to generate loops and blocks
+     * @return new instance of the compiler with all values remaining the same,
+     *   just with different way of generating branches
+     * @since 1.0
+     */
+    public Bck2Brwsr structuredFlow(boolean structuredFlow) {
+        Bck2Brwsr b = copy();
+        b.structuredFlow = structuredFlow;
+        return b;
+    }
+
+    /** Removes methods the program cannot call. Starting from the
+     * {@link #addRootClasses(java.lang.String...) root} classes, the
+     * compiler follows calls in the bytecode and generates only methods
+     * that are reachable. All methods of root classes and of
+     * {@link #addClasses(java.lang.String...) added} classes are kept,
+     * as well as {@link #addExported(java.lang.String...) exported}
+     * methods, methods with runtime annotations, methods called from
+     * JavaScript code and the core of the runtime (the
+     * <code>java.lang</code> package). Virtual calls are resolved by
+     * name, so a method is kept in all classes once it is called on
+     * any object. The analysis needs to see the whole program, it is not
+     * performed for {@link #library(java.lang.String...) libraries}.
+     * Tree shaking cannot be combined with a
+     * {@link #cache(java.io.File) cache},
+     * {@link #generate(java.lang.Appendable)} throws
+     * {@link IllegalStateException} when both are set.
+     * <p>
+     * Tree shaking is only safe for closed-world programs - all the code
+     * that is ever going to run has to be known to the compiler. Methods
+     * called from classes loaded later (for example by
+     * {@link #standalone(boolean) the VM} from a classpath) would be
+     * missing. All methods of classes named by a class literal or by a
+     * constant passed to <code>Class.forName</code> in code using
+     * reflection are kept, as well as methods looked up by a constant
+     * name. When the compiler cannot tell what reflection accesses, it
+     * prints a warning and the accessed methods may be removed. When a
+     * class outside of the JDK is referenced, but not available, no
+     * method is removed.
+     *
+     * @param treeShaking <code>true</code> to remove unreachable methods
+     * @return new instance of the compiler with all values remaining the same,
+     *   just with tree shaking turned on or off
+     * @since 1.0
+     */
+    public Bck2Brwsr treeShaking(boolean treeShaking) {
+        Bck2Brwsr b = copy();
+        b.treeShaking = treeShaking;
+        b.removed = treeShaking ? removed : null;
+        return b;
+    }
+
+    /** Removes methods the program cannot call and reports them.
+     * Just like {@link #treeShaking(boolean) treeShaking(true)}, but
+     * the compiler also writes the removed methods to the provided
+     * <code>report</code> - one method per line: name of its class,
+     * a dot, name of the method and its JVM signature.
+     *
+     * @param report the output to write names of removed methods to
+     * @return new instance of the compiler with all values remaining the same,
+     *   just with tree shaking turned on
+     * @since 1.0
+     */
+    public Bck2Brwsr treeShaking(Appendable report) {
+        Bck2Brwsr b = copy();
+        b.treeShaking = true;
+        b.removed = report;
+        return b;
     }
 
     /** A way to change the provider of additional resources (classes) for the 
@@ -341,7 +620,87 @@ public final class Bck2Brwsr {
 
         VM.compile(out, this);
     }
+
+    /** Generates virtual machine based on previous configuration of the 
+     * compiler and writes it to multiple outputs, each with its own
+     * obfuscation level. The classes are translated only once. Outputs
+     * without obfuscation receive the code as it is being generated, the
+     * code is kept in memory only when some of the outputs requests
+     * obfuscation.
+     * The level set by {@link #obfuscation(org.apidesign.vm4brwsr.ObfuscationLevel)}
+     * is ignored. Typical use is to produce debug and minified version
+     * of a library at once: <pre>
+     * compiler.generate(
+     *   new Appendable[] { debug, minified },
+     *   new ObfuscationLevel[] { ObfuscationLevel.NONE, ObfuscationLevel.FULL }
+     * );
+     * </pre>
+     * 
+     * @param outs the outputs to write the generated JavaScript to
+     * @param levels obfuscation level for each of the outputs
+     * @throws IOException I/O exception can be thrown when something goes wrong
+     * @since 1.0
+     */
+    public void generate(Appendable[] outs, ObfuscationLevel[] levels) throws IOException {
+        if (outs.length != levels.length) {
+            throw new IllegalArgumentException(
+                "Expecting level for each output: " + outs.length + " != " + levels.length
+            );
+        }
+        final Appendable[] plain = new Appendable[outs.length + 1];
+        int cnt = 0;
+        StringBuilder sb = null;
+        for (int i = 0; i < outs.length; i++) {
+            if (levels[i] == ObfuscationLevel.NONE) {
+                plain[cnt++] = outs[i];
+            } else if (sb == null) {
+                sb = new StringBuilder();
+                plain[cnt++] = sb;
+            }
+        }
+        VM.compile(new Tee(plain, cnt), this);
+        if (sb == null) {
+            return;
+        }
+        final String raw = sb.toString();
+        sb = null;
+        for (int i = 0; i < outs.length; i++) {
+            if (levels[i] == ObfuscationLevel.NONE) {
+                continue;
+            }
+            try {
+                ClosureWrapper.produceTo(outs[i], levels[i], raw);
+            } catch (IOException ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                outs[i].append("/* Failed to obfuscate: " + ex.getMessage()
+                               + " */\n");
+                outs[i].append(raw);
+            }
+        }
+    }
     
+    /** Describes the options influencing the generated code. Classes,
+     * resources and caches are not included. Tools that keep the
+     * generated scripts can use the description to distinguish scripts
+     * produced with different options.
+     *
+     * @return textual description of the options
+     * @since 1.0
+     */
+    @Override
+    public String toString() {
+        return "Bck2Brwsr[obfuscation=" + level
+            + ", extension=" + extension
+            + ", typedArrays=" + typedArrays
+            + ", directFields=" + directFields
+            + ", inline=" + inline
+            + ", hoistClasses=" + hoistClasses
+            + ", structuredFlow=" + structuredFlow
+            + ", treeShaking=" + treeShaking
+            + "]";
+    }
+
     //
     // Internal getters
     // 
@@ -374,6 +733,81 @@ public final class Bck2Brwsr {
         return classpath;
     }
 
+    int parallelism() {
+        return parallelism;
+    }
+
+    File cache() {
+        return cache;
+    }
+
+    ClassCache classCache() {
+        return classCache;
+    }
+
+    boolean typedArrays() {
+        return typedArrays;
+    }
+
+    boolean directFields() {
+        return directFields;
+    }
+
+    boolean inline() {
+        return inline;
+    }
+
+    boolean hoistClasses() {
+        return hoistClasses;
+    }
+
+    boolean structuredFlow() {
+        return structuredFlow;
+    }
+
+    boolean treeShaking() {
+        return treeShaking;
+    }
+
+    Appendable removed() {
+        return removed;
+    }
+
+    /** Writes the same text to multiple outputs. */
+    private static final class Tee implements Appendable {
+        private final Appendable[] outs;
+        private final int cnt;
+
+        Tee(Appendable[] outs, int cnt) {
+            this.outs = outs;
+            this.cnt = cnt;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            for (int i = 0; i < cnt; i++) {
+                outs[i].append(csq);
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            for (int i = 0; i < cnt; i++) {
+                outs[i].append(csq, start, end);
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            for (int i = 0; i < cnt; i++) {
+                outs[i].append(c);
+            }
+            return this;
+        }
+    }
+
     /** Provider of resources (classes and other files). The 
      * {@link #generate(java.lang.Appendable, org.apidesign.vm4brwsr.Bck2Brwsr.Resources, java.lang.String[]) 
      * generator method} will call back here for all classes needed during
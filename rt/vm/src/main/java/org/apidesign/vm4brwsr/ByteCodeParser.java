@@ -1981,6 +1981,17 @@ final class ByteCodeParser {
             return new TrapDataIterator(exception_table);
         }
 
+        /**
+         * Return all entries of exception table in code attribute.
+         */
+        public TrapData[] getTrapData() {
+            TrapData[] arr = new TrapData[exception_table.size()];
+            for (int i = 0; i < arr.length; i++) {
+                arr[i] = (TrapData) exception_table.elementAt(i);
+            }
+            return arr;
+        }
+
         /**
          * Return method attributes.
          */
@@ -32,6 +32,11 @@ abstract class ByteCodeToJavaScript implements Appendable {
     private final StringArray classRefs = new StringArray();
     private boolean outChanged;
     private boolean callbacks;
+    private ControlFlow flow;
+    private ResolvedClasses resolved;
+    private int currentPc;
+    private String superRef;
+    private boolean lazyMethods;
 
     protected ByteCodeToJavaScript(Appendable out) {
         this.out = out;
@@ -85,20 +90,116 @@ abstract class ByteCodeToJavaScript implements Appendable {
     /* protected */ String accessClass(String classOperation) {
         return classOperation;
     }
+
+    /** Allows subclasses to back arrays of <code>byte</code>, <code>short</code>,
+     * <code>char</code>, <code>int</code>, <code>float</code> and 
+     * <code>double</code> by JavaScript typed arrays. By default all arrays
+     * are plain JavaScript arrays.
+     */
+    /* protected */ boolean typedArrays() {
+        return false;
+    }
     
     final String accessClassFalse(String classOperation) {
         if (jc.getClassName().replace('/', '_').equals(classOperation)) {
             return "c";
         }
+        if (classOperation.equals(superRef)) {
+            return "refs_" + classOperation;
+        }
         classRefs.addIfMissing(classOperation);
+        if (resolved != null && resolved.isResolved(currentPc, classOperation)) {
+            return "lrefs_" + classOperation;
+        }
         return "(refs_" + classOperation + " || (refs_" + classOperation + " = " + accessClass(classOperation) + "(false)))";
     }
 
+    /** Object holding values of static fields of given class. */
+    private String staticFields(String mangledClass) {
+        if (jc.getClassName().replace('/', '_').equals(mangledClass)) {
+            return "CLS";
+        }
+        return accessClassFalse(mangledClass) + ".constructor";
+    }
+
     protected String accessField(String object, String mangledName,
                                  String[] fieldInfoName) throws IOException {
         return object + "." + mangledName;
     }
 
+    /** Allows subclasses to access a field directly as a property
+     * rather than via its accessor function. By default all fields are
+     * accessed through the accessors.
+     *
+     * @param fieldInfoName class, name and type of the field
+     * @return name of the class declaring the field or
+     *   <code>null</code> if the field shall be accessed via its accessor
+     */
+    /* protected */ String directField(String[] fieldInfoName) throws IOException {
+        return null;
+    }
+
+    /** Allows subclasses to leave out methods that cannot be called.
+     * By default all methods are generated.
+     *
+     * @param m the method
+     * @return <code>false</code> if the method shall not be generated
+     */
+    /* protected */ boolean isReachable(MethodData m) {
+        return true;
+    }
+
+    /** Allows subclasses to postpone translation of a method till its
+     * first invocation. The method is then represented by a stub that
+     * evaluates the provided expression, calls the function it returns
+     * and remembers the function for next invocations. The
+     * expression can refer to the stub as <code>stub</code>, to the class
+     * as <code>CLS</code> and to its prototype as <code>c</code>.
+     * Use {@link #compileMethod(int)} to translate the method then.
+     * By default all methods are translated immediately.
+     *
+     * @param m the method
+     * @param index index of the method among methods of its class
+     * @return expression to obtain the translated method or
+     *   <code>null</code> to translate the method immediately
+     */
+    /* protected */ String lazyMethod(MethodData m, int index) {
+        return null;
+    }
+
+    /** Allows subclasses to generate branches as JavaScript loops and
+     * labeled blocks. By default each jump goes through a dispatch
+     * variable.
+     *
+     * @return <code>true</code> to generate structured control flow
+     */
+    /* protected */ boolean structuredFlow() {
+        return false;
+    }
+
+    /** Allows subclasses to resolve classes used repeatedly in a method
+     * only once and the superclass once per class. By default each use
+     * of a class checks whether it has already been resolved.
+     *
+     * @return <code>true</code> to analyze methods and resolve classes
+     *   into local variables
+     */
+    /* protected */ boolean hoistClasses() {
+        return false;
+    }
+
+    /** Allows subclasses to inline calls to trivial methods. By default
+     * nothing is inlined.
+     *
+     * @param methodInfo class, name and signature of the called method
+     * @param invoke the invoke instruction
+     * @return the only method the call can reach or <code>null</code>
+     *   if the call shall not be inlined
+     */
+    /* protected */ MethodData inlined(String[] methodInfo, int invoke) throws IOException {
+        return null;
+    }
+
     protected String accessStaticMethod(
                              String object,
                              String mangledName,
@@ -208,6 +309,12 @@ abstract class ByteCodeToJavaScript implements Appendable {
         );
         StringArray toInitilize = new StringArray();
         final String className = className(jc);
+        lazyMethods = proto == null && !callbacks;
+        if (proto == null && !jc.isInterface() && hoistClasses()) {
+            superRef = mangleClassName(jc.getSuperClassName());
+        } else {
+            superRef = null;
+        }
         append("\n\n").append(assignClass(className));
         append("function ").append(className).append("() {");
         append("\n  var m;");
@@ -217,6 +324,11 @@ abstract class ByteCodeToJavaScript implements Appendable {
             String sc = jc.getSuperClassName(); // with _
             append("\n    var pp = ").
                 append(accessClass(mangleClassName(sc))).append("(true);");
+            if (superRef != null) {
+                // initialized by now, methods can use it without a check
+                append("\n    var refs_").append(superRef).append(" = ").
+                    append(accessClass(superRef)).append("(false);");
+            }
             append("\n    var p = CLS.prototype = pp;");
             append("\n    var c = p;");
             append("\n    var sprcls = pp.constructor.$class;");
@@ -254,6 +366,7 @@ abstract class ByteCodeToJavaScript implements Appendable {
         for (MethodData m : jc.getMethods()) {
             byte[] onlyArr = m.findAnnotationData(true);
             if (javaScriptOnly(onlyArr)) continue;
+            if (!isReachable(m)) continue;
             String destObject;
             String mn;
             append("\n    ");
@@ -287,7 +400,8 @@ abstract class ByteCodeToJavaScript implements Appendable {
             for (MethodData m : jc.getMethods()) {
                 if ((m.getAccess() & ACC_ABSTRACT) == 0
                     && (m.getAccess() & ACC_STATIC) == 0
-                    && (m.getAccess() & ACC_PRIVATE) == 0) {
+                    && (m.getAccess() & ACC_PRIVATE) == 0
+                    && isReachable(m)) {
                     final String mn = findMethodName(m, new StringBuilder());
                     append("\n        if (!x['").append(mn).append("']) Object.defineProperty(x, '").append(mn).append("', { value : c['").append(mn).append("']});");
                 }
@@ -394,7 +508,12 @@ abstract class ByteCodeToJavaScript implements Appendable {
             return jsb;
         }
         final String mn = findMethodName(m, new StringBuilder());
-        boolean defineProp = generateMethod(destObject, mn, m);
+        final boolean defineProp;
+        if (!mn.equals("class__V") && generateLazyMethod(destObject, mn, m)) {
+            defineProp = false;
+        } else {
+            defineProp = generateMethod(destObject, mn, m);
+        }
         if (mn.equals("class__V")) {
             if (defineProp) {
                 toInitilize.add(accessClassFalse(className(jc)) + "['" + mn + "']");
@@ -411,10 +530,77 @@ abstract class ByteCodeToJavaScript implements Appendable {
             return jsb;
         }
         final String mn = findMethodName(m, new StringBuilder());
-        generateMethod(destObject, mn, m);
+        if (!generateLazyMethod(destObject, mn, m)) {
+            generateMethod(destObject, mn, m);
+        }
         return mn;
     }
 
+    private boolean generateLazyMethod(String destObject, String name, MethodData m)
+            throws IOException {
+        if (!lazyMethods || m.getCode() == null) {
+            return false;
+        }
+        final MethodData[] all = jc.getMethods();
+        int index = 0;
+        while (all[index] != m) {
+            index++;
+        }
+        final String compile = lazyMethod(m, index);
+        if (compile == null) {
+            return false;
+        }
+        final boolean defineProp = isDefineProp();
+        if (defineProp) {
+            append("Object.defineProperty(").append(destObject).
+            append(", '").append(name).append("', { configurable: true, writable: true, value: m = function stub() {\n");
+        } else {
+            append("m = ").append(destObject).append(".").append(name).
+            append(" = function stub() {\n");
+        }
+        append("  return (stub.impl || ").append(compile).
+            append(").apply(this, arguments);\n");
+        if (defineProp) {
+            append("}});");
+        } else {
+            append("};");
+        }
+        return true;
+    }
+
+    /** Methods of these classes are not enumerable, as they are
+     * visible in every JavaScript object or array.
+     */
+    private boolean isDefineProp() {
+        return "java/lang/Object".equals(jc.getClassName()) ||
+            "java/lang/reflect/Array".equals(jc.getClassName());
+    }
+
+    /** Translates a method postponed by {@link #lazyMethod}. The
+     * generated code expects <code>vm</code>, <code>CLS</code> and
+     * <code>c</code> to be defined and assigns the translated method
+     * to <code>m</code> as well as to its place in <code>CLS</code>
+     * or <code>c</code>.
+     *
+     * @param index index of the method among methods of the last
+     *   compiled class
+     */
+    final void compileMethod(int index) throws IOException {
+        final MethodData m = jc.getMethods()[index];
+        final String mn = findMethodName(m, new StringBuilder());
+        append("var m;\n");
+        if (superRef != null) {
+            append("var refs_").append(superRef).append(" = ").
+                append(accessClass(superRef)).append("(false);\n");
+        }
+        generateMethod(m.isConstructor() ? "CLS" : "c", mn, m);
+        for (String ref : classRefs.toArray()) {
+            append("\nvar refs_").append(ref).append(";");
+        }
+        classRefs.clear();
+        append("\nreturn m;\n");
+    }
+
     private boolean generateMethod(String destObject, String name, MethodData m)
             throws IOException {
         final StackMapIterator stackMapIterator = m.createStackMapIterator();
@@ -422,9 +608,7 @@ abstract class ByteCodeToJavaScript implements Appendable {
         final LocalsMapper lmapper =
                 new LocalsMapper(stackMapIterator.getArguments());
 
-        boolean defineProp = 
-            "java/lang/Object".equals(jc.getClassName()) ||
-            "java/lang/reflect/Array".equals(jc.getClassName());
+        boolean defineProp = isDefineProp();
         
         if (defineProp) {
             append("Object.defineProperty(").append(destObject).
@@ -451,6 +635,9 @@ abstract class ByteCodeToJavaScript implements Appendable {
         }
 
         final StackMapper smapper = new StackMapper();
+        resolved = callbacks || !hoistClasses() ? null : ResolvedClasses.create(
+            byteCodes, m.getTrapData(), touchedClasses(byteCodes)
+        );
 
         if (!m.isStatic()) {
             append("  var ").append(" lcA0 = this;\n");
@@ -463,16 +650,23 @@ abstract class ByteCodeToJavaScript implements Appendable {
         if (stackMapIterator.isEmpty()) {
             didBranches = false;
             lastStackFrame = 0;
+            flow = null;
         } else {
             didBranches = true;
             lastStackFrame = -1;
-            append("\n  var gt = 0;\n");
+            flow = !structuredFlow() ? null : ControlFlow.create(
+                byteCodes, m.createStackMapIterator(), m.getTrapData()
+            );
+            if (flow == null) {
+                append("\n  var gt = 0;\n");
+            }
         }
         
         int openBraces = 0;
         int topMostLabel = 0;
         for (int i = 0; i < byteCodes.length; i++) {
             int prev = i;
+            currentPc = i;
             outChanged = false;
             stackMapIterator.advanceTo(i);
             boolean changeInCatch = trap.advanceTo(i);
@@ -484,22 +678,27 @@ abstract class ByteCodeToJavaScript implements Appendable {
             }
             if (lastStackFrame != stackMapIterator.getFrameIndex()) {
                 smapper.flush(this);
-                if (i != 0) {
-                    append("    }\n");
-                }
-                if (openBraces > 64) {
-                    for (int c = 0; c < 64; c++) {
-                        append("break;}\n");
+                if (flow != null) {
+                    flow.close(this, i);
+                    flow.open(this, i);
+                } else {
+                    if (i != 0) {
+                        append("    }\n");
+                    }
+                    if (openBraces > 64) {
+                        for (int c = 0; c < 64; c++) {
+                            append("break;}\n");
+                        }
+                        openBraces = 1;
+                        topMostLabel = i;
                     }
-                    openBraces = 1;
-                    topMostLabel = i;
+                    append("    X_" + i).append(": for (;;) { IF: if (gt <= " + i + ") {\n");
+                    openBraces++;
                 }
                 
                 lastStackFrame = stackMapIterator.getFrameIndex();
                 lmapper.syncWithFrameLocals(stackMapIterator.getFrameLocals());
                 smapper.syncWithFrameStack(stackMapIterator.getFrameStack());
-                append("    X_" + i).append(": for (;;) { IF: if (gt <= " + i + ") {\n");
-                openBraces++;
                 changeInCatch = true;
             } else {
                 debug("    /* " + i + " */ ");
@@ -508,6 +707,16 @@ abstract class ByteCodeToJavaScript implements Appendable {
                 append("try {");
                 previousTrap = trap.current();
             }
+            if (resolved != null) {
+                final String r = resolved.resolve(i);
+                if (r != null) {
+                    smapper.flush(this);
+                    append("var lrefs_").append(r).append(" = refs_").
+                        append(r).append(" || (refs_").append(r).
+                        append(" = ").append(accessClass(r)).
+                        append("(false));\n");
+                }
+            }
             final int c = readUByte(byteCodes, i);
             switch (c) {
                 case opc_aload_0:
@@ -872,7 +1081,7 @@ abstract class ByteCodeToJavaScript implements Appendable {
                     smapper.replace(this, VarType.DOUBLE, "@1", smapper.getI(0));
                     break;
                 case opc_l2i:
-                    smapper.replace(this, VarType.INTEGER, "(@1).toInt32()", smapper.getL(0));
+                    smapper.replace(this, VarType.INTEGER, "(@1 | 0)", smapper.getL(0));
                     break;
                     // max int check?
                 case opc_l2f:
@@ -973,8 +1182,9 @@ abstract class ByteCodeToJavaScript implements Appendable {
                         final Long lv = new Long(v);
                         final int low = (int)(lv.longValue() & 0xFFFFFFFF);
                         final int hi = (int)(lv.longValue() >> 32);
-                        if (hi == 0) {
-                            smapper.assign(this, VarType.LONG, "0x" + Integer.toHexString(low));
+                        if (hi > -0x200000 && hi < 0x200000) {
+                            // fits into plain number, see java_lang_Number.js
+                            smapper.assign(this, VarType.LONG, lv.toString());
                         } else {
                             smapper.assign(this, VarType.LONG,
                                 "0x" + Integer.toHexString(hi) + ".next32(0x" + 
@@ -1107,13 +1317,25 @@ abstract class ByteCodeToJavaScript implements Appendable {
                     break;
                 }
                 case opc_invokevirtual:
-                    i = invokeVirtualMethod(byteCodes, i, smapper);
+                    if (inlineCall(byteCodes, i, smapper, c)) {
+                        i += 2;
+                    } else {
+                        i = invokeVirtualMethod(byteCodes, i, smapper);
+                    }
                     break;
                 case opc_invokespecial:
-                    i = invokeStaticMethod(byteCodes, i, smapper, false);
+                    if (inlineCall(byteCodes, i, smapper, c)) {
+                        i += 2;
+                    } else {
+                        i = invokeStaticMethod(byteCodes, i, smapper, false);
+                    }
                     break;
                 case opc_invokestatic:
-                    i = invokeStaticMethod(byteCodes, i, smapper, true);
+                    if (inlineCall(byteCodes, i, smapper, c)) {
+                        i += 2;
+                    } else {
+                        i = invokeStaticMethod(byteCodes, i, smapper, true);
+                    }
                     break;
                 case opc_invokedynamic: {
                     int indx = readUShortArg(byteCodes, i);
@@ -1409,13 +1631,20 @@ abstract class ByteCodeToJavaScript implements Appendable {
                     int indx = readUShortArg(byteCodes, i);
                     String[] fi = jc.getFieldInfoName(indx);
                     final int type = VarType.fromFieldType(fi[2].charAt(0));
-                    final String mangleClass = mangleClassName(fi[0]);
-                    final String mangleClassAccess = accessClassFalse(mangleClass);
-                    smapper.replace(this, type, "@2.call(@1)",
-                         smapper.getA(0),
-                         accessField(mangleClassAccess,
-                                     "_" + fi[1], fi)
-                    );
+                    final String owner = directField(fi);
+                    if (owner != null) {
+                        smapper.replace(this, type, "@1.fld_@2_@3",
+                             smapper.getA(0), mangleClassName(owner), fi[1]
+                        );
+                    } else {
+                        final String mangleClass = mangleClassName(fi[0]);
+                        final String mangleClassAccess = accessClassFalse(mangleClass);
+                        smapper.replace(this, type, "@2.call(@1)",
+                             smapper.getA(0),
+                             accessField(mangleClassAccess,
+                                         "_" + fi[1], fi)
+                        );
+                    }
                     i += 2;
                     addReference(fi[0]);
                     break;
@@ -1424,13 +1653,21 @@ abstract class ByteCodeToJavaScript implements Appendable {
                     int indx = readUShortArg(byteCodes, i);
                     String[] fi = jc.getFieldInfoName(indx);
                     final int type = VarType.fromFieldType(fi[2].charAt(0));
-                    final String mangleClass = mangleClassName(fi[0]);
-                    final String mangleClassAccess = accessClassFalse(mangleClass);
-                    emit(smapper, this, "@3.call(@2, @1);",
-                         smapper.popT(type),
-                         smapper.popA(),
-                         accessField(mangleClassAccess,
-                                     "_" + fi[1], fi));
+                    final String owner = directField(fi);
+                    if (owner != null) {
+                        emit(smapper, this, "@2.fld_@3_@4 = @1;",
+                             smapper.popT(type),
+                             smapper.popA(),
+                             mangleClassName(owner), fi[1]);
+                    } else {
+                        final String mangleClass = mangleClassName(fi[0]);
+                        final String mangleClassAccess = accessClassFalse(mangleClass);
+                        emit(smapper, this, "@3.call(@2, @1);",
+                             smapper.popT(type),
+                             smapper.popA(),
+                             accessField(mangleClassAccess,
+                                         "_" + fi[1], fi));
+                    }
                     i += 2;
                     addReference(fi[0]);
                     break;
@@ -1439,9 +1676,16 @@ abstract class ByteCodeToJavaScript implements Appendable {
                     int indx = readUShortArg(byteCodes, i);
                     String[] fi = jc.getFieldInfoName(indx);
                     final int type = VarType.fromFieldType(fi[2].charAt(0));
-                    String ac = accessClassFalse(mangleClassName(fi[0]));
-                    String af = accessField(ac, "_" + fi[1], fi);
-                    smapper.assign(this, type, af + "()");
+                    final String owner = directField(fi);
+                    if (owner != null) {
+                        smapper.assign(this, type,
+                            staticFields(mangleClassName(owner)) + ".fld_" + fi[1]
+                        );
+                    } else {
+                        String ac = accessClassFalse(mangleClassName(fi[0]));
+                        String af = accessField(ac, "_" + fi[1], fi);
+                        smapper.assign(this, type, af + "()");
+                    }
                     i += 2;
                     addReference(fi[0]);
                     break;
@@ -1450,9 +1694,16 @@ abstract class ByteCodeToJavaScript implements Appendable {
                     int indx = readUShortArg(byteCodes, i);
                     String[] fi = jc.getFieldInfoName(indx);
                     final int type = VarType.fromFieldType(fi[2].charAt(0));
-                    emit(smapper, this, "@1._@2(@3);",
-                         accessClassFalse(mangleClassName(fi[0])), fi[1],
-                         smapper.popT(type));
+                    final String owner = directField(fi);
+                    if (owner != null) {
+                        emit(smapper, this, "@1.fld_@2 = @3;",
+                             staticFields(mangleClassName(owner)), fi[1],
+                             smapper.popT(type));
+                    } else {
+                        emit(smapper, this, "@1._@2(@3);",
+                             accessClassFalse(mangleClassName(fi[0])), fi[1],
+                             smapper.popT(type));
+                    }
                     i += 2;
                     addReference(fi[0]);
                     break;
@@ -1510,12 +1761,16 @@ abstract class ByteCodeToJavaScript implements Appendable {
         if (previousTrap != null) {
             generateCatch(previousTrap, byteCodes.length, topMostLabel);
         }
-        if (didBranches) {
+        if (flow != null) {
+            flow.close(this, byteCodes.length);
+            flow = null;
+        } else if (didBranches) {
             append("\n    }\n");
         }
         while (openBraces-- > 0) {
             append('}');
         }
+        resolved = null;
         if (defineProp) {
             append("\n}});");
         } else {
@@ -1552,6 +1807,198 @@ abstract class ByteCodeToJavaScript implements Appendable {
         return ((byteCodes[offset] & 0xff) << 8)
                     | (byteCodes[offset + 1] & 0xff);
     }
+    /** Max size of bytecode of a method to inline. */
+    private static final int INLINE_BUDGET = 16;
+
+    /** Replaces a call to a trivial method without arguments by its body.
+     * Bodies of instance methods have to dereference the receiver first,
+     * so calls on <code>null</code> still throw, unless the result is
+     * ignored - then the call is kept. Static methods are
+     * inlined only when their class is known to be initialized.
+     */
+    private boolean inlineCall(
+        byte[] byteCodes, int i, StackMapper mapper, int invoke
+    ) throws IOException {
+        if (callbacks) {
+            return false;
+        }
+        final String[] mi = jc.getFieldInfoName(readUShortArg(byteCodes, i));
+        if (!mi[2].startsWith("()")) {
+            return false;
+        }
+        if (i + 3 < byteCodes.length) {
+            final int next = readUByte(byteCodes, i + 3);
+            if (next == opc_pop || next == opc_pop2) {
+                // the result is ignored, but the call may still throw
+                return false;
+            }
+        }
+        final MethodData m = inlined(mi, invoke);
+        if (m == null) {
+            return false;
+        }
+        final boolean isStatic = invoke == opc_invokestatic;
+        if (isStatic) {
+            final String cls = mangleClassName(m.cls.getClassName());
+            if (!cls.equals(mangleClassName(mi[0]))) {
+                return false;
+            }
+            if (!jc.getClassName().replace('/', '_').equals(cls)
+                && !cls.equals(superRef)
+                && (resolved == null || !resolved.isResolved(currentPc, cls))
+            ) {
+                return false;
+            }
+        }
+        final String body = inlineBody(m, !isStatic);
+        if (body == null) {
+            return false;
+        }
+        final int type = VarType.fromFieldType(mi[2].charAt(2));
+        if (isStatic) {
+            mapper.assign(this, type, body);
+        } else {
+            mapper.replace(this, type, body, mapper.getA(0));
+        }
+        addReference(mi[0]);
+        return true;
+    }
+
+    /** Expresses body of a trivial method. Instance methods use
+     * <code>@1</code> for the receiver.
+     *
+     * @return the expression or <code>null</code> if the body is
+     *   not trivial
+     */
+    private String inlineBody(MethodData m, boolean instance) throws IOException {
+        final byte[] code = m.getCode();
+        if (code.length > INLINE_BUDGET || m.getTrapData().length > 0) {
+            return null;
+        }
+        String value = null;
+        int pc = 0;
+        if (instance) {
+            if (code.length < 5
+                || readUByte(code, 0) != opc_aload_0
+                || readUByte(code, 1) != opc_getfield
+            ) {
+                return null;
+            }
+            value = "@1";
+            pc = 1;
+        }
+        while (pc < code.length) {
+            final int op = readUByte(code, pc);
+            switch (op) {
+                case opc_getfield: {
+                    final String[] fi = m.cls.getFieldInfoName(readUShortArg(code, pc));
+                    final String owner = value == null ? null : directField(fi);
+                    if (owner == null) {
+                        return null;
+                    }
+                    addReference(owner);
+                    value = value + ".fld_" + mangleClassName(owner) + '_' + fi[1];
+                    pc += 3;
+                    break;
+                }
+                case opc_getstatic: {
+                    final String[] fi = m.cls.getFieldInfoName(readUShortArg(code, pc));
+                    final String owner = value != null ? null : directField(fi);
+                    if (owner == null || !owner.equals(m.cls.getClassName())) {
+                        return null;
+                    }
+                    value = staticFields(mangleClassName(owner)) + ".fld_" + fi[1];
+                    pc += 3;
+                    break;
+                }
+                case opc_aconst_null:
+                case opc_iconst_m1: case opc_iconst_0: case opc_iconst_1:
+                case opc_iconst_2: case opc_iconst_3: case opc_iconst_4:
+                case opc_iconst_5:
+                    if (value != null) {
+                        return null;
+                    }
+                    if (op == opc_aconst_null) {
+                        value = "null";
+                    } else {
+                        value = "(" + (op - opc_iconst_0) + ")";
+                    }
+                    pc++;
+                    break;
+                case opc_bipush:
+                    if (value != null) {
+                        return null;
+                    }
+                    value = "(" + code[pc + 1] + ")";
+                    pc += 2;
+                    break;
+                case opc_sipush:
+                    if (value != null) {
+                        return null;
+                    }
+                    value = "(" + readShortArg(code, pc) + ")";
+                    pc += 3;
+                    break;
+                case opc_ireturn: case opc_lreturn: case opc_freturn:
+                case opc_dreturn: case opc_areturn:
+                    return pc == code.length - 1 ? value : null;
+                default:
+                    return null;
+            }
+        }
+        return null;
+    }
+
+    /** Classes resolved via <code>refs_X</code> by each instruction. */
+    private String[] touchedClasses(byte[] byteCodes) throws IOException {
+        final String[] touched = new String[byteCodes.length];
+        final int[] succ = new int[byteCodes.length + 1];
+        for (int pc = 0; pc >= 0 && pc < byteCodes.length;) {
+            touched[pc] = touchedClass(byteCodes, pc);
+            pc = ResolvedClasses.successors(byteCodes, pc, succ);
+        }
+        return touched;
+    }
+
+    private String touchedClass(byte[] byteCodes, int pc) throws IOException {
+        final String cn;
+        switch (readUByte(byteCodes, pc)) {
+            case opc_invokestatic:
+            case opc_invokespecial: {
+                cn = jc.getFieldInfoName(readUShortArg(byteCodes, pc))[0];
+                if (cn.startsWith("java/util/concurrent/atomic/")) {
+                    // field updaters need to see their arguments unflushed
+                    return null;
+                }
+                break;
+            }
+            case opc_getstatic:
+            case opc_putstatic: {
+                String[] fi = jc.getFieldInfoName(readUShortArg(byteCodes, pc));
+                final String owner = directField(fi);
+                cn = owner != null ? owner : fi[0];
+                break;
+            }
+            case opc_getfield:
+            case opc_putfield: {
+                String[] fi = jc.getFieldInfoName(readUShortArg(byteCodes, pc));
+                if (directField(fi) != null) {
+                    return null;
+                }
+                cn = fi[0];
+                break;
+            }
+            default:
+                return null;
+        }
+        final String mangled = mangleClassName(cn);
+        if (jc.getClassName().replace('/', '_').equals(mangled)
+            || mangled.equals(superRef)) {
+            return null;
+        }
+        return mangled;
+    }
+
     private static int readUShortArg(byte[] byteCodes, int offsetInstruction) {
         return readUShort(byteCodes, offsetInstruction + 1);
     }
@@ -1688,7 +2135,7 @@ abstract class ByteCodeToJavaScript implements Appendable {
         return mangleSig(name);
     }
 
-    private static String findMethodName(MethodData m, StringBuilder cnt) {
+    static String findMethodName(MethodData m, StringBuilder cnt) {
         StringBuilder name = new StringBuilder();
         if ("<init>".equals(m.getName())) { // NOI18N
             name.append("cons"); // NOI18N
@@ -2248,6 +2695,8 @@ abstract class ByteCodeToJavaScript implements Appendable {
     }
 
     private void generateCatch(TrapData[] traps, int current, int topMostLabel) throws IOException {
+        // structured jumps from catch belong to the last protected instruction
+        final int from = flow != null ? current - 1 : current;
         append("} catch (e) {\n");
         int finallyPC = -1;
         for (TrapData e : traps) {
@@ -2260,7 +2709,7 @@ abstract class ByteCodeToJavaScript implements Appendable {
                 append("e = vm.java_lang_Class(false).bck2BrwsrThrwrbl(e);");
                 append("if (e['$instOf_" + classInternalName.replace('/', '_') + "']) {");
                 append("var stA0 = e;");
-                goTo(this, current, e.handler_pc, topMostLabel);
+                goTo(this, from, e.handler_pc, topMostLabel);
                 append("}\n");
             } else {
                 finallyPC = e.handler_pc;
@@ -2270,12 +2719,16 @@ abstract class ByteCodeToJavaScript implements Appendable {
             append("throw e;");
         } else {
             append("var stA0 = e;");
-            goTo(this, current, finallyPC, topMostLabel);
+            goTo(this, from, finallyPC, topMostLabel);
         }
         append("\n}");
     }
 
-    private static void goTo(Appendable out, int current, int to, int canBack) throws IOException {
+    private void goTo(Appendable out, int current, int to, int canBack) throws IOException {
+        if (flow != null) {
+            flow.jump(out, current, to);
+            return;
+        }
         if (to < current) {
             if (canBack < to) {
                 out.append("{ gt = 0; continue X_" + to + "; }");
@@ -2287,7 +2740,7 @@ abstract class ByteCodeToJavaScript implements Appendable {
         }
     }
 
-    private static void emitIf(
+    private void emitIf(
         StackMapper sm, 
         Appendable out, String pattern, 
         CharSequence param, 
@@ -2311,6 +2764,12 @@ abstract class ByteCodeToJavaScript implements Appendable {
             case 11: jvmType = "[J"; break;
             default: throw new IllegalStateException("Array type: " + atype);
         }
+        if (typedArrays() && isTypedArray(jvmType)) {
+            emit(smapper, this, 
+                "var @2 = Array.prototype['newTypedArray__Ljava_lang_Object_2Ljava_lang_String_2I']('@3', @1);",
+                 smapper.popI(), smapper.pushA(), jvmType);
+            return;
+        }
         emit(smapper, this, 
             "var @2 = Array.prototype['newArray__Ljava_lang_Object_2ZLjava_lang_String_2Ljava_lang_Object_2I'](true, '@3', null, @1);",
              smapper.popI(), smapper.pushA(), jvmType);
@@ -2345,6 +2804,12 @@ abstract class ByteCodeToJavaScript implements Appendable {
         String fn = "null";
         if (typeName.charAt(dim) == 'L') {
             fn = "vm." + mangleClassName(typeName.substring(dim + 1, typeName.length() - 1));
+        } else if (typedArrays() && isTypedArray(typeName.substring(dim - 1))) {
+            emit(smapper, this, 
+                "var @2 = Array.prototype['multiNewTypedArray__Ljava_lang_Object_2Ljava_lang_String_2_3I']('@3', @1);",
+                 dims.toString(), smapper.pushA(), typeName
+            );
+            return i;
         }
         emit(smapper, this, 
             "var @2 = Array.prototype['multiNewArray__Ljava_lang_Object_2Ljava_lang_String_2_3ILjava_lang_Object_2']('@3', @1, @4);",
@@ -2353,6 +2818,18 @@ abstract class ByteCodeToJavaScript implements Appendable {
         return i;
     }
 
+    private static boolean isTypedArray(String jvmType) {
+        if (jvmType.length() != 2) {
+            return false;
+        }
+        switch (jvmType.charAt(1)) {
+            case 'B': case 'S': case 'C': case 'I': case 'F': case 'D':
+                return true;
+            default:
+                return false;
+        }
+    }
+
     private int generateTableSwitch(int i, final byte[] byteCodes, final StackMapper smapper, int topMostLabel) throws IOException {
         int table = i / 4 * 4 + 4;
         int dflt = i + readInt4(byteCodes, table);
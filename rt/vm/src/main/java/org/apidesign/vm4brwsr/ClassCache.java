@@ -0,0 +1,181 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apidesign.bck2brwsr.core.ExtraJavaScript;
+import org.apidesign.vm4brwsr.ByteCodeParser.ClassData;
+
+/** Parsed class files shared by multiple
+ * {@link Bck2Brwsr#classCache(org.apidesign.vm4brwsr.ClassCache) compilations}.
+ * Classes are identified by the SHA-1 of their bytes, so compilations
+ * with different {@link Bck2Brwsr.Resources providers of resources}
+ * may safely share one instance. With one cache, a build that compiles
+ * several libraries parses each class file only once. The cache can be
+ * used from multiple threads at once.
+ *
+ * @since 1.0
+ */
+@ExtraJavaScript(processByteCode = false, resource="")
+public final class ClassCache {
+    private final Map<ByteBuffer, ClassData> classes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private ClassCache(final int limit) {
+        this.classes = new LinkedHashMap<ByteBuffer, ClassData>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, ClassData> eldest) {
+                if (limit > 0 && size() > limit) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** Creates new cache without any limit on its size.
+     *
+     * @return new empty cache
+     */
+    public static ClassCache create() {
+        return new ClassCache(0);
+    }
+
+    /** Creates new cache holding at most the given number of classes.
+     * The least recently used classes are dropped when the limit
+     * is reached.
+     *
+     * @param maxClasses maximal number of classes to keep
+     * @return new empty cache
+     */
+    public static ClassCache create(int maxClasses) {
+        if (maxClasses < 1) {
+            throw new IllegalArgumentException("Limit must be positive: " + maxClasses);
+        }
+        return new ClassCache(maxClasses);
+    }
+
+    /** Number of classes currently in the cache.
+     *
+     * @return number of parsed classes held by the cache
+     */
+    public synchronized int size() {
+        return classes.size();
+    }
+
+    /** Number of times a class was found in the cache.
+     *
+     * @return number of requests that didn't need to parse a class
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /** Number of times a class had to be parsed.
+     *
+     * @return number of requests not satisfied by the cache
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /** Number of classes dropped due to the size limit.
+     *
+     * @return number of evicted classes
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ClassCache[size=" + classes.size() + ", hits=" + hits
+            + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+
+    /** Finds or parses a class. The stream is read fully and closed.
+     *
+     * @param is the bytes of the class file
+     * @return parsed class
+     * @throws IOException if the class cannot be read
+     */
+    ClassData find(InputStream is) throws IOException {
+        final byte[] arr;
+        try {
+            arr = readFully(is);
+        } finally {
+            is.close();
+        }
+        final ByteBuffer key;
+        try {
+            key = ByteBuffer.wrap(MessageDigest.getInstance("SHA-1").digest(arr));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException(ex);
+        }
+        synchronized (this) {
+            ClassData cd = classes.get(key);
+            if (cd != null) {
+                hits++;
+                return cd;
+            }
+            misses++;
+        }
+        final ClassData cd = new ClassData(new ByteArrayInputStream(arr));
+        synchronized (this) {
+            ClassData prev = classes.get(key);
+            if (prev != null) {
+                return prev;
+            }
+            classes.put(key, cd);
+        }
+        return cd;
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        byte[] arr = new byte[Math.max(is.available(), 1024)];
+        int offset = 0;
+        for (;;) {
+            if (offset == arr.length) {
+                byte[] tmp = new byte[arr.length * 2];
+                System.arraycopy(arr, 0, tmp, 0, arr.length);
+                arr = tmp;
+            }
+            int len = is.read(arr, offset, arr.length - offset);
+            if (len == -1) {
+                break;
+            }
+            offset += len;
+        }
+        if (offset != arr.length) {
+            byte[] tmp = new byte[offset];
+            System.arraycopy(arr, 0, tmp, 0, offset);
+            arr = tmp;
+        }
+        return arr;
+    }
+}
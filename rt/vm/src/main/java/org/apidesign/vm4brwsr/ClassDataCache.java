@@ -32,11 +32,37 @@ final class ClassDataCache {
 
     private final Bck2Brwsr.Resources resources;
     private final Map<String, Object> classDataMap;
+    private final ClassCache shared;
+    private final StringArray accessed;
 
     ClassDataCache(final Bck2Brwsr.Resources resources) {
+        this(resources, null);
+    }
+
+    ClassDataCache(final Bck2Brwsr.Resources resources, ClassCache shared) {
         this.resources = resources;
+        this.shared = shared;
 
         classDataMap = new HashMap<String, Object>();
+        accessed = null;
+    }
+
+    private ClassDataCache(ClassDataCache shared, StringArray accessed) {
+        this.resources = shared.resources;
+        this.classDataMap = shared.classDataMap;
+        this.shared = shared.shared;
+        this.accessed = accessed;
+    }
+
+    /** Creates a view of this cache that shares all the parsed classes,
+     * but records names of class files it has been asked for.
+     *
+     * @param accessed array to add <code>name.class</code> of each
+     *   requested class to
+     * @return new recording view of the cache
+     */
+    ClassDataCache recording(StringArray accessed) {
+        return new ClassDataCache(this, accessed);
     }
 
     ClassData getClassData(String className) throws IOException {
@@ -45,11 +71,30 @@ final class ClassDataCache {
             // calls from other sources
             className = "java/lang/Object";
         }
-        Object cacheEntry = classDataMap.get(className);
+        if (accessed != null) {
+            accessed.addIfMissing(className + ".class");
+        }
+        Object cacheEntry;
+        synchronized (classDataMap) {
+            cacheEntry = classDataMap.get(className);
+        }
         if (cacheEntry == null) {
             final InputStream is = loadClass(resources, className);
-            cacheEntry = (is != null) ? new ClassData(is) : MISSING_CLASS;
-            classDataMap.put(className, cacheEntry);
+            if (is == null) {
+                cacheEntry = MISSING_CLASS;
+            } else if (shared != null) {
+                cacheEntry = shared.find(is);
+            } else {
+                cacheEntry = new ClassData(is);
+            }
+            synchronized (classDataMap) {
+                Object prev = classDataMap.get(className);
+                if (prev != null) {
+                    cacheEntry = prev;
+                } else {
+                    classDataMap.put(className, cacheEntry);
+                }
+            }
         }
 
         return (cacheEntry != MISSING_CLASS) ? (ClassData) cacheEntry : null;
@@ -0,0 +1,140 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import java.io.IOException;
+import org.apidesign.bck2brwsr.core.ExtraJavaScript;
+import org.apidesign.vm4brwsr.ByteCodeParser.ClassData;
+import org.apidesign.vm4brwsr.ByteCodeParser.MethodData;
+
+/** Class hierarchy analysis of a whole program. Visits all classes
+ * reachable from the root ones via their constant pools and remembers
+ * which classes declare which virtual methods. A virtual call to a
+ * method no subclass of its declaring class overrides has only one
+ * possible target.
+ */
+@ExtraJavaScript(processByteCode = false, resource="")
+final class ClassHierarchy {
+    private final ClassDataCache classes;
+    private final StringArray methods;
+    private StringArray[] declaredIn;
+
+    private ClassHierarchy(ClassDataCache classes) {
+        this.classes = classes;
+        this.methods = new StringArray();
+        this.declaredIn = new StringArray[64];
+    }
+
+    static ClassHierarchy create(
+        ClassDataCache classes, String[] roots
+    ) throws IOException {
+        ClassHierarchy h = new ClassHierarchy(classes);
+        StringArray todo = StringArray.asList(roots);
+        for (int i = 0; i < todo.size(); i++) {
+            ClassData cd;
+            try {
+                cd = classes.getClassData(todo.get(i));
+            } catch (IOException ex) {
+                // not available, thus not part of the program
+                cd = null;
+            }
+            if (cd == null) {
+                continue;
+            }
+            h.register(cd);
+            final String sup = cd.getSuperClassName();
+            if (sup != null) {
+                todo.addIfMissing(sup);
+            }
+            for (String iface : cd.getSuperInterfaces()) {
+                todo.addIfMissing(iface);
+            }
+            for (int cpx = 1; cpx < cd.getCpoolCount(); cpx++) {
+                if (cd.getTag(cpx) != ByteCodeParser.CONSTANT_CLASS) {
+                    continue;
+                }
+                String name = cd.getClassName(cpx);
+                if (name.startsWith("[")) {
+                    final int at = name.indexOf('L');
+                    if (at == -1) {
+                        continue;
+                    }
+                    name = name.substring(at + 1, name.length() - 1);
+                }
+                todo.addIfMissing(name);
+            }
+        }
+        return h;
+    }
+
+    private void register(ClassData cd) {
+        final String name = cd.getClassName();
+        for (MethodData m : cd.getMethods()) {
+            if (m.isStatic() || m.isConstructor()
+                || (m.access & ByteCodeParser.ACC_PRIVATE) != 0
+            ) {
+                continue;
+            }
+            final String key = m.getName() + m.getInternalSig();
+            int at = methods.indexOf(key);
+            if (at == -1) {
+                at = methods.size();
+                methods.add(key);
+                if (at == declaredIn.length) {
+                    StringArray[] arr = new StringArray[at * 2];
+                    System.arraycopy(declaredIn, 0, arr, 0, at);
+                    declaredIn = arr;
+                }
+                declaredIn[at] = new StringArray();
+            }
+            declaredIn[at].add(name);
+        }
+    }
+
+    /** Checks whether a method may be overridden.
+     *
+     * @param m the method
+     * @return <code>true</code> if a subclass of the method's class
+     *   declares the same method
+     */
+    boolean isOverridden(MethodData m) throws IOException {
+        final int at = methods.indexOf(m.getName() + m.getInternalSig());
+        if (at == -1) {
+            return false;
+        }
+        final String owner = m.cls.getClassName();
+        final StringArray in = declaredIn[at];
+        for (int i = 0; i < in.size(); i++) {
+            String name = in.get(i);
+            if (owner.equals(name)) {
+                continue;
+            }
+            for (;;) {
+                ClassData cd = classes.getClassData(name);
+                name = cd == null ? null : cd.getSuperClassName();
+                if (name == null) {
+                    break;
+                }
+                if (owner.equals(name)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import java.io.IOException;
+
+/** Work list of classes referenced during compilation. Keeps the
+ * classes in order they were referenced, hands out the most recently
+ * referenced class that has not yet been visited and remembers the
+ * initialization code of the processed ones. All operations are
+ * constant time (amortized), so walking the references of thousands
+ * of classes stays linear. The implementation relies only on arrays
+ * as it is translated to JavaScript together with the rest of the VM.
+ */
+final class ClassWorklist {
+    private static final int PENDING = 0;
+    private static final int PROCESSED = 1;
+    private static final int SKIPPED = 2;
+
+    private String[] names;
+    private int[] states;
+    private String[] initCode;
+    private int size;
+
+    private int[] table;
+
+    private int[] stack;
+    private int stackSize;
+
+    private int[] order;
+    private int orderSize;
+    private int initialized;
+
+    private int probes;
+
+    ClassWorklist() {
+        names = new String[64];
+        states = new int[64];
+        initCode = new String[64];
+        table = new int[128];
+        stack = new int[64];
+        order = new int[64];
+    }
+
+    /** Adds a class to the list even if it has already been referenced.
+     * The class becomes the next one to be returned from {@link #next()}
+     * unless it has already been visited.
+     *
+     * @param name internal name of the class
+     */
+    void add(String name) {
+        int at = find(name);
+        if (at == -1) {
+            at = register(name);
+        }
+        enqueue(at);
+    }
+
+    /** Adds a class to the list, if it is not yet there.
+     *
+     * @param name internal name of the class
+     * @return <code>true</code> if the class has been added
+     */
+    boolean addIfMissing(String name) {
+        if (find(name) != -1) {
+            return false;
+        }
+        enqueue(register(name));
+        return true;
+    }
+
+    /** The most recently referenced class that has not been
+     * processed nor skipped yet.
+     *
+     * @return internal name of the class or <code>null</code> if
+     *   there are no more classes to visit
+     */
+    String next() {
+        while (stackSize > 0) {
+            probes++;
+            int at = stack[stackSize - 1];
+            if (states[at] == PENDING) {
+                return names[at];
+            }
+            stackSize--;
+        }
+        return null;
+    }
+
+    void processed(String name, String code) {
+        int at = find(name);
+        states[at] = PROCESSED;
+        initCode[at] = code == null ? "" : code;
+    }
+
+    void skipped(String name) {
+        states[find(name)] = SKIPPED;
+    }
+
+    /** Emits initialization code of processed classes that has not
+     * been emitted yet. Classes referenced later are initialized
+     * sooner, as they are the dependencies of the previous ones.
+     *
+     * @param out the output to write the code to
+     * @throws IOException if the output fails
+     */
+    void initialize(Appendable out) throws IOException {
+        for (int i = orderSize; i-- > initialized;) {
+            int at = order[i];
+            String code = initCode[at];
+            if (states[at] == PROCESSED && code != null) {
+                if (!code.isEmpty()) {
+                    out.append(code).append("\n");
+                }
+                initCode[at] = "";
+            }
+        }
+        initialized = orderSize;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Number of hash table slots and stack entries examined so far.
+     * Used by tests to verify the work done per operation stays
+     * constant.
+     *
+     * @return the number of probes since the list was created
+     */
+    int probes() {
+        return probes;
+    }
+
+    /** Name of a class in order of registration.
+     *
+     * @param at index from <code>0</code> to {@link #size()}
+     * @return internal name of the class
+     */
+    String name(int at) {
+        return names[at];
+    }
+
+    private void enqueue(int at) {
+        if (stackSize == stack.length) {
+            stack = grow(stack);
+        }
+        stack[stackSize++] = at;
+        if (orderSize == order.length) {
+            order = grow(order);
+        }
+        order[orderSize++] = at;
+    }
+
+    private int register(String name) {
+        if (size == names.length) {
+            String[] n = new String[size * 2];
+            String[] c = new String[size * 2];
+            for (int i = 0; i < size; i++) {
+                n[i] = names[i];
+                c[i] = initCode[i];
+            }
+            names = n;
+            initCode = c;
+            states = grow(states);
+        }
+        final int at = size++;
+        names[at] = name;
+        if (size * 2 > table.length) {
+            table = new int[table.length * 2];
+            for (int i = 0; i < at; i++) {
+                table[slot(names[i])] = i + 1;
+            }
+        }
+        table[slot(name)] = at + 1;
+        return at;
+    }
+
+    private int find(String name) {
+        int index = table[slot(name)];
+        return index - 1;
+    }
+
+    private int slot(String name) {
+        final int mask = table.length - 1;
+        int h = name.hashCode();
+        // names of classes in a package differ only in last characters,
+        // spread their hash codes to avoid long runs of occupied slots
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        int i = h & mask;
+        for (;;) {
+            probes++;
+            int index = table[i];
+            if (index == 0 || names[index - 1].equals(name)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private static int[] grow(int[] arr) {
+        int[] tmp = new int[arr.length * 2];
+        for (int i = 0; i < arr.length; i++) {
+            tmp[i] = arr[i];
+        }
+        return tmp;
+    }
+}
@@ -48,12 +48,14 @@ final class ClosureWrapper extends CommandLineRunner {
     private String externsCode;
 
     private ClosureWrapper(Appendable out,
-                           String compilationLevel, Bck2Brwsr config) {
+                           String compilationLevel, Bck2Brwsr config,
+                           String compiledCode) {
         super(
             generateArguments(compilationLevel),
             new PrintStream(new APS(out)), System.err
         );
         this.config = config;
+        this.compiledCode = compiledCode;
     }
 
     @Override
@@ -141,13 +143,33 @@ final class ClosureWrapper extends CommandLineRunner {
     static int produceTo(Appendable output,
         ObfuscationLevel obfuscationLevel,
         Bck2Brwsr config
+    ) throws IOException {
+        return produceTo(output, obfuscationLevel, config, null);
+    }
+
+    /** Obfuscates already generated code.
+     *
+     * @param output where to write the obfuscated code to
+     * @param obfuscationLevel the level of obfuscation
+     * @param compiledCode code generated by the {@link VM}
+     */
+    static int produceTo(Appendable output,
+        ObfuscationLevel obfuscationLevel,
+        String compiledCode
+    ) throws IOException {
+        return produceTo(output, obfuscationLevel, null, compiledCode);
+    }
+
+    private static int produceTo(Appendable output,
+        ObfuscationLevel obfuscationLevel,
+        Bck2Brwsr config, String compiledCode
     ) throws IOException {
         final ClosureWrapper cw =
                 new ClosureWrapper(output,
                                    (obfuscationLevel == ObfuscationLevel.FULL)
                                            ? "ADVANCED_OPTIMIZATIONS"
                                            : "SIMPLE_OPTIMIZATIONS",
-                                   config);
+                                   config, compiledCode);
         try {
             return cw.doRun();
         } catch (FlagUsageException ex) {
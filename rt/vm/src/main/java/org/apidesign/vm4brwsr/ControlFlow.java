@@ -0,0 +1,342 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import java.io.IOException;
+import static org.apidesign.vm4brwsr.ByteCodeParser.*;
+
+/** Structured shape of a method's control flow. Rather than dispatching
+ * every jump through a state variable, branches are expressed as
+ * <code>break</code> of a labeled block that ends right in front of
+ * the target or as <code>continue</code> of a labeled loop that starts
+ * at the target. Blocks are generated as loops that never repeat, as
+ * Nashorn does not handle <code>break</code> out of nested labeled
+ * blocks properly. The blocks and loops are placed so that the code can
+ * still be generated in bytecode order. If that is not possible (the
+ * flow enters a loop elsewhere than at its header, uses subroutines,
+ * or the scopes would nest too deeply), {@link #create} returns
+ * <code>null</code> and the caller has to use the generic state machine.
+ * The implementation relies only on arrays as it is translated to
+ * JavaScript together with the rest of the VM.
+ */
+final class ControlFlow {
+    private static final int MAX_DEPTH = 64;
+
+    private final int[] start;
+    private final int[] end;
+    private final boolean[] loop;
+    private final int size;
+
+    private ControlFlow(int[] start, int[] end, boolean[] loop, int size) {
+        this.start = start;
+        this.end = end;
+        this.loop = loop;
+        this.size = size;
+    }
+
+    /** Analyzes the code of a method.
+     *
+     * @param code the bytecode of the method
+     * @param frames fresh iterator over stack map frames of the method
+     * @param traps exception table of the method
+     * @return the structure or <code>null</code> if the method cannot
+     *   be expressed with blocks and loops in bytecode order
+     */
+    static ControlFlow create(
+        byte[] code, StackMapIterator frames, TrapData[] traps
+    ) {
+        final int len = code.length;
+        final boolean[] frame = new boolean[len + 1];
+        int last = -1;
+        for (int i = 0; i < len; i++) {
+            frames.advanceTo(i);
+            if (frames.getFrameIndex() != last) {
+                last = frames.getFrameIndex();
+                frame[i] = true;
+            }
+        }
+        frame[len] = true;
+
+        Edges edges = new Edges();
+        for (int i = 0; i < len;) {
+            final int op = code[i] & 0xff;
+            switch (op) {
+                case opc_ifeq: case opc_ifne: case opc_iflt: case opc_ifge:
+                case opc_ifgt: case opc_ifle: case opc_if_icmpeq:
+                case opc_if_icmpne: case opc_if_icmplt: case opc_if_icmpge:
+                case opc_if_icmpgt: case opc_if_icmple: case opc_if_acmpeq:
+                case opc_if_acmpne: case opc_goto:
+                case opc_ifnull: case opc_ifnonnull:
+                    edges.add(i, i + readShort(code, i + 1));
+                    i += 3;
+                    break;
+                case opc_tableswitch: {
+                    int table = i / 4 * 4 + 4;
+                    edges.add(i, i + readInt(code, table));
+                    int low = readInt(code, table + 4);
+                    int high = readInt(code, table + 8);
+                    table += 12;
+                    for (int k = low; k <= high; k++) {
+                        edges.add(i, i + readInt(code, table));
+                        table += 4;
+                    }
+                    i = table;
+                    break;
+                }
+                case opc_lookupswitch: {
+                    int table = i / 4 * 4 + 4;
+                    edges.add(i, i + readInt(code, table));
+                    int n = readInt(code, table + 4);
+                    table += 8;
+                    while (n-- > 0) {
+                        edges.add(i, i + readInt(code, table + 4));
+                        table += 8;
+                    }
+                    i = table;
+                    break;
+                }
+                case opc_wide: {
+                    final int wideOp = code[i + 1] & 0xff;
+                    if (wideOp == opc_ret) {
+                        return null;
+                    }
+                    i += wideOp == opc_iinc ? 6 : 4;
+                    break;
+                }
+                case opc_jsr: case opc_jsr_w: case opc_ret: case opc_goto_w:
+                    return null;
+                default:
+                    i += length(op);
+            }
+        }
+        for (TrapData t : traps) {
+            // catch blocks are generated in front of any pc in the range
+            edges.add(t.start_pc & 0xffff, t.handler_pc & 0xffff);
+            edges.add((t.end_pc & 0xffff) - 1, t.handler_pc & 0xffff);
+        }
+
+        int[] start = new int[edges.size];
+        int[] end = new int[edges.size];
+        boolean[] loop = new boolean[edges.size];
+        int size = 0;
+        for (int e = 0; e < edges.size; e++) {
+            final int from = edges.from[e];
+            final int to = edges.to[e];
+            if (to < 0 || to >= len || !frame[to]) {
+                return null;
+            }
+            final boolean back = to <= from;
+            int s = 0;
+            while (s < size && (loop[s] != back || target(start[s], end[s], back) != to)) {
+                s++;
+            }
+            if (back) {
+                int after = from + 1;
+                while (!frame[after]) {
+                    after++;
+                }
+                if (s == size) {
+                    start[s] = to;
+                    end[s] = after;
+                    loop[s] = true;
+                    size++;
+                } else if (end[s] < after) {
+                    end[s] = after;
+                }
+            } else {
+                int before = from;
+                while (!frame[before]) {
+                    before--;
+                }
+                if (s == size) {
+                    start[s] = before;
+                    end[s] = to;
+                    size++;
+                } else if (start[s] > before) {
+                    start[s] = before;
+                }
+            }
+        }
+
+        for (boolean changed = true; changed;) {
+            changed = false;
+            for (int p = 0; p < size; p++) {
+                for (int q = 0; q < size; q++) {
+                    if (start[p] < start[q] && start[q] < end[p] && end[p] < end[q]) {
+                        if (!loop[q]) {
+                            start[q] = start[p];
+                        } else if (loop[p]) {
+                            end[p] = end[q];
+                        } else {
+                            // jumps into the middle of a loop
+                            return null;
+                        }
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        for (int p = 0; p < size; p++) {
+            int depth = 0;
+            for (int q = 0; q < size; q++) {
+                if (start[q] <= start[p] && end[p] <= end[q]) {
+                    depth++;
+                }
+            }
+            if (depth > MAX_DEPTH) {
+                return null;
+            }
+        }
+        return new ControlFlow(start, end, loop, size);
+    }
+
+    /** Closes blocks and loops that end in front of given instruction.
+     * Inner scopes are closed first. Call it for all instructions in
+     * increasing order, before {@link #open(java.lang.Appendable, int)}
+     * for the same instruction.
+     */
+    void close(Appendable out, int pc) throws IOException {
+        for (;;) {
+            int inner = -1;
+            for (int s = 0; s < size; s++) {
+                if (end[s] == pc && (inner == -1 || outer(inner, s))) {
+                    inner = s;
+                }
+            }
+            if (inner == -1) {
+                return;
+            }
+            if (loop[inner]) {
+                final int header = -1 - start[inner];
+                out.append("    break X_").append(Integer.toString(header)).append("; }\n");
+            } else {
+                out.append("    break B_").append(Integer.toString(pc)).append("; }\n");
+            }
+            end[inner] = -1;
+        }
+    }
+
+    /** Opens blocks and loops that start at given instruction.
+     * Outer scopes are opened first.
+     */
+    void open(Appendable out, int pc) throws IOException {
+        for (;;) {
+            int outer = -1;
+            for (int s = 0; s < size; s++) {
+                if (start[s] == pc && (outer == -1 || outer(s, outer))) {
+                    outer = s;
+                }
+            }
+            if (outer == -1) {
+                return;
+            }
+            if (loop[outer]) {
+                out.append("    X_").append(Integer.toString(pc)).append(": for (;;) {\n");
+            } else {
+                out.append("    B_").append(Integer.toString(end[outer])).append(": for (;;) {\n");
+            }
+            start[outer] = -1 - start[outer];
+        }
+    }
+
+    /** Generates a jump.
+     *
+     * @param from the instruction that jumps
+     * @param to the target of the jump
+     */
+    void jump(Appendable out, int from, int to) throws IOException {
+        if (to <= from) {
+            out.append("continue X_").append(Integer.toString(to)).append(";");
+        } else {
+            out.append("break B_").append(Integer.toString(to)).append(";");
+        }
+    }
+
+    private boolean outer(int a, int b) {
+        final int sa = start[a] < 0 ? -1 - start[a] : start[a];
+        final int sb = start[b] < 0 ? -1 - start[b] : start[b];
+        if (sa != sb) {
+            return sa < sb;
+        }
+        if (end[a] != end[b]) {
+            return end[a] > end[b];
+        }
+        return !loop[a];
+    }
+
+    private static int target(int start, int end, boolean loop) {
+        return loop ? start : end;
+    }
+
+    static int length(int op) {
+        if (op <= opc_dconst_1) {
+            return 1;
+        }
+        switch (op) {
+            case opc_bipush: case opc_ldc: case opc_newarray:
+            case opc_iload: case opc_lload: case opc_fload: case opc_dload:
+            case opc_aload: case opc_istore: case opc_lstore: case opc_fstore:
+            case opc_dstore: case opc_astore:
+                return 2;
+            case opc_sipush: case opc_ldc_w: case opc_ldc2_w: case opc_iinc:
+            case opc_getstatic: case opc_putstatic: case opc_getfield:
+            case opc_putfield: case opc_invokevirtual: case opc_invokespecial:
+            case opc_invokestatic: case opc_new: case opc_anewarray:
+            case opc_checkcast: case opc_instanceof:
+                return 3;
+            case opc_multianewarray:
+                return 4;
+            case opc_invokeinterface: case opc_invokedynamic:
+                return 5;
+            default:
+                return 1;
+        }
+    }
+
+    static int readShort(byte[] code, int at) {
+        return (short) (((code[at] & 0xff) << 8) | (code[at + 1] & 0xff));
+    }
+
+    static int readInt(byte[] code, int at) {
+        return ((code[at] & 0xff) << 24) | ((code[at + 1] & 0xff) << 16)
+            | ((code[at + 2] & 0xff) << 8) | (code[at + 3] & 0xff);
+    }
+
+    private static final class Edges {
+        int[] from = new int[16];
+        int[] to = new int[16];
+        int size;
+
+        void add(int f, int t) {
+            if (size == from.length) {
+                int[] nf = new int[size * 2];
+                int[] nt = new int[size * 2];
+                for (int i = 0; i < size; i++) {
+                    nf[i] = from[i];
+                    nt[i] = to[i];
+                }
+                from = nf;
+                to = nt;
+            }
+            from[size] = f;
+            to[size] = t;
+            size++;
+        }
+    }
+}
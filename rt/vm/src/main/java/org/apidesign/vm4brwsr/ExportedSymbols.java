@@ -54,6 +54,28 @@ final class ExportedSymbols {
                    || isMarkedAsExported(methodData);
     }
 
+    /** Checks whether a method has been exported on purpose. Public
+     * classes of <code>java</code> packages count only when listed
+     * explicitly or annotated, as the rest of them is exported just
+     * to keep the names of the JDK APIs.
+     */
+    boolean isExplicitlyExported(MethodData methodData) throws IOException {
+        if (isMarkedAsExported(methodData)) {
+            return true;
+        }
+        if (!isAccessible(methodData.access)) {
+            return false;
+        }
+        final ClassData classData = methodData.cls;
+        final String pkgName = classData.getPkgName();
+        if (pkgName != null && pkgName.startsWith("java/")) {
+            return exported.contains(classData.getClassName())
+                || exported.contains(pkgName + '/')
+                || isMarkedAsExported(classData);
+        }
+        return isExported(classData);
+    }
+
     boolean isExported(FieldData fieldData) throws IOException {
         if (
             isAccessible(fieldData.access) && 
@@ -79,20 +101,28 @@ final class ExportedSymbols {
             return true;
         }
 
-        final Boolean cachedValue = isMarkedAsExportedCache.get(pkgName);
+        final Boolean cachedValue;
+        synchronized (isMarkedAsExportedCache) {
+            cachedValue = isMarkedAsExportedCache.get(pkgName);
+        }
         if (cachedValue != null) {
             return cachedValue;
         }
 
         final boolean newValue = resolveIsMarkedAsExportedPackage(pkgName);
-        isMarkedAsExportedCache.put(pkgName, newValue);
+        synchronized (isMarkedAsExportedCache) {
+            isMarkedAsExportedCache.put(pkgName, newValue);
+        }
 
         return newValue;
     }
 
     private boolean isMarkedAsExported(ClassData classData)
             throws IOException {
-        final Boolean cachedValue = isMarkedAsExportedCache.get(classData);
+        final Boolean cachedValue;
+        synchronized (isMarkedAsExportedCache) {
+            cachedValue = isMarkedAsExportedCache.get(classData);
+        }
         if (cachedValue != null) {
             return cachedValue;
         }
@@ -100,7 +130,9 @@ final class ExportedSymbols {
         final boolean newValue =
                 isMarkedAsExported(classData.findAnnotationData(true),
                                    classData);
-        isMarkedAsExportedCache.put(classData, newValue);
+        synchronized (isMarkedAsExportedCache) {
+            isMarkedAsExportedCache.put(classData, newValue);
+        }
 
         return newValue;
     }
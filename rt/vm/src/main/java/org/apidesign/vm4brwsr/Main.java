@@ -41,6 +41,7 @@ final class Main {
     public static void main(String... args) throws IOException, URISyntaxException {
         final String obfuscate = "--obfuscatelevel";
         final String extension = "--createextension";
+        final String treeShaking = "--treeshaking";
 
         if (args.length < 2) {
             System.err.println("Bck2Brwsr Translator from Java(tm) to JavaScript, (c) Jaroslav Tulach 2012");
@@ -57,6 +58,8 @@ final class Main {
             }
             System.err.print("]] [");
             System.err.print(extension);
+            System.err.print("] [");
+            System.err.print(treeShaking);
             System.err.println("] <file_to_generate_js_code_to> java/lang/Class org/your/App ...");
             System.exit(9);
         }
@@ -65,6 +68,7 @@ final class Main {
 
         ObfuscationLevel obfLevel = ObfuscationLevel.NONE;
         boolean createExtension = false;
+        boolean removeUnused = false;
         StringArray classes = new StringArray();
         String generateTo = null;
         for (int i = 0; i < args.length; i++) {
@@ -92,6 +96,10 @@ final class Main {
                 createExtension = true;
                 continue;
             }
+            if (treeShaking.equals(args[i])) { // NOI18N
+                removeUnused = true;
+                continue;
+            }
             if (generateTo == null) {
                 generateTo = args[i];
             } else {
@@ -105,6 +113,7 @@ final class Main {
             System.exit(0);
         }
         
+        final StringBuilder removed = new StringBuilder();
         try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(gt), "UTF-8"))) {
             Bck2Brwsr c = Bck2Brwsr.newCompiler().
                 obfuscation(obfLevel).
@@ -114,9 +123,18 @@ final class Main {
             if (createExtension) {
                 c = c.library();
             }
+            if (removeUnused) {
+                c = c.treeShaking(removed);
+            }
             
             c.generate(w);
         }
+        if (removeUnused) {
+            File report = new File(gt.getPath() + ".removed");
+            try (Writer w = new OutputStreamWriter(new FileOutputStream(report), "UTF-8")) {
+                w.append(removed);
+            }
+        }
     }
 
     private static void collectClasses(
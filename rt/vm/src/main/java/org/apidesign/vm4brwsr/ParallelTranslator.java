@@ -0,0 +1,140 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apidesign.bck2brwsr.core.ExtraJavaScript;
+
+/** Translates classes ahead of the {@link VM} on a fork-join pool.
+ * Each class is translated by a {@link VM#fork(java.lang.Appendable) fork}
+ * of the VM into its own buffer. Classes referenced by a translated class
+ * are scheduled for translation immediately, unless there are already
+ * too many translations waiting to be included. The VM then
+ * {@link VM#include(org.apidesign.vm4brwsr.VM, java.lang.CharSequence) includes}
+ * the results in the same order as it would translate the classes itself,
+ * so the generated code is the same as when compiling serially.
+ */
+@ExtraJavaScript(processByteCode = false, resource="")
+final class ParallelTranslator {
+    private final VM vm;
+    private final ForkJoinPool pool;
+    private final ConcurrentMap<String, ForkJoinTask<Translation>> translations;
+    /** translations scheduled, but not yet included */
+    private final AtomicInteger pending;
+    private final int lookahead;
+
+    ParallelTranslator(VM vm, int parallelism) {
+        this.vm = vm;
+        this.pool = new ForkJoinPool(parallelism);
+        this.translations = new ConcurrentHashMap<String, ForkJoinTask<Translation>>();
+        this.pending = new AtomicInteger();
+        this.lookahead = parallelism * 16;
+    }
+
+    /** Includes translation of given class into the VM. Waits for the
+     * translation to finish, if necessary.
+     *
+     * @param name the class to translate
+     * @return initialization code of the class
+     * @throws IOException if the translation fails
+     */
+    String generateClass(String name) throws IOException {
+        final Translation t;
+        try {
+            t = schedule(name).get();
+        } catch (InterruptedException ex) {
+            throw new IOException(ex);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+        if (t == null) {
+            throw new IOException("Can't find class " + name);
+        }
+        pending.decrementAndGet();
+        vm.include(t.fork, t.code);
+        prefetch(t.fork.references());
+        final String initCode = t.initCode;
+        t.clear();
+        return initCode;
+    }
+
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private ForkJoinTask<Translation> schedule(final String name) {
+        ForkJoinTask<Translation> task = translations.get(name);
+        if (task == null) {
+            task = ForkJoinTask.adapt(new Callable<Translation>() {
+                @Override
+                public Translation call() throws Exception {
+                    return translate(name);
+                }
+            });
+            ForkJoinTask<Translation> prev = translations.putIfAbsent(name, task);
+            if (prev != null) {
+                return prev;
+            }
+            pending.incrementAndGet();
+            pool.execute(task);
+        }
+        return task;
+    }
+
+    private Translation translate(String name) throws IOException {
+        if (vm.classDataCache.getClassData(name) == null) {
+            // missing classes are handled by the VM itself
+            pending.decrementAndGet();
+            return null;
+        }
+        final Translation t = vm.translate(name);
+        prefetch(t.fork.references());
+        return t;
+    }
+
+    /** Schedules translation of referenced classes, as long as the
+     * number of translations waiting for the VM remains bounded. Classes
+     * skipped now are scheduled when the VM includes the class that
+     * references them, or when the VM asks for them.
+     */
+    private void prefetch(ClassWorklist refs) {
+        for (int i = 0; i < refs.size(); i++) {
+            if (pending.get() >= lookahead) {
+                break;
+            }
+            schedule(refs.name(i));
+        }
+    }
+}
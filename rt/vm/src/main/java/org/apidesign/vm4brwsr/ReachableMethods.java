@@ -0,0 +1,650 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import org.apidesign.bck2brwsr.core.ExtraJavaScript;
+import org.apidesign.vm4brwsr.ByteCodeParser.AnnotationParser;
+import org.apidesign.vm4brwsr.ByteCodeParser.ClassData;
+import org.apidesign.vm4brwsr.ByteCodeParser.MethodData;
+import org.apidesign.vm4brwsr.ByteCodeParser.TrapData;
+import static org.apidesign.vm4brwsr.ByteCodeParser.*;
+
+/** Reachability analysis of methods of a whole program. Starts with all
+ * methods of the root classes and follows the calls in bytecode of the
+ * reached methods. Static and <code>super</code> calls keep the called
+ * method, virtual calls keep methods of the same name and signature in
+ * all reached classes. Names of methods used by JavaScript code
+ * (bodies of methods and additional scripts) are treated as virtual
+ * calls as well. Methods looked up by reflection with a name that is
+ * a string constant of the calling method are kept too. All methods of
+ * classes named by a class literal or a constant passed to
+ * <code>Class.forName</code> in a method using reflection are kept.
+ * <p>
+ * The analysis assumes a closed world. When reflection cannot be
+ * resolved a warning is printed. When a class outside of the JDK is
+ * referenced, but not available, it could be loaded later and call any
+ * method, so nothing is removed at all.
+ */
+@ExtraJavaScript(processByteCode = false, resource="")
+final class ReachableMethods {
+    private final ClassDataCache classes;
+    private final Bck2Brwsr.Resources resources;
+    private final ExportedSymbols exported;
+    /** referenced classes outside of the JDK that are not available */
+    private final StringArray missing;
+    /** classes whose methods are all kept */
+    private final StringArray keepAll;
+    /** reached classes, in the order they were found */
+    private final StringArray visited;
+    /** kept methods as <code>class.nameSignature</code>, in the order they were found */
+    private final StringArray kept;
+    /** names and signatures of virtually called methods */
+    private final StringArray called;
+    /** mangled names of methods used by JavaScript code */
+    private final StringArray jsNames;
+    /** names of methods looked up by reflection */
+    private final StringArray reflected;
+    /** instance methods of reached classes by their name and signature */
+    private final Index declared;
+    /** methods of reached classes by their mangled name */
+    private final Index mangled;
+    /** methods of reached classes by their name */
+    private final Index named;
+
+    private ReachableMethods(
+        ClassDataCache classes, Bck2Brwsr.Resources resources,
+        ExportedSymbols exported, String[] roots
+    ) {
+        this.classes = classes;
+        this.resources = resources;
+        this.exported = exported;
+        this.keepAll = StringArray.asList(roots);
+        this.missing = new StringArray();
+        this.visited = new StringArray();
+        this.kept = new StringArray();
+        this.called = new StringArray();
+        this.jsNames = new StringArray();
+        this.reflected = new StringArray();
+        this.declared = new Index();
+        this.mangled = new Index();
+        this.named = new Index();
+    }
+
+    /** Analyses the program.
+     *
+     * @param runtime script of the virtual machine calling methods of
+     *   the program by their mangled names
+     */
+    static ReachableMethods create(
+        ClassDataCache classes, Bck2Brwsr.Resources resources,
+        ExportedSymbols exported, String[] roots, String runtime
+    ) throws IOException {
+        ReachableMethods r = new ReachableMethods(
+            classes, resources, exported, roots
+        );
+        for (String root : roots) {
+            r.reach(root);
+        }
+        r.scanJavaScript(runtime);
+        int classAt = 0;
+        int methodAt = 0;
+        for (;;) {
+            if (classAt < r.visited.size()) {
+                r.visit(r.visited.get(classAt++));
+            } else if (methodAt < r.kept.size()) {
+                r.scan(r.kept.get(methodAt++));
+            } else {
+                break;
+            }
+        }
+        if (r.missing.size() > 0) {
+            warning(
+                "Tree shaking disabled, classes " +
+                Arrays.toString(r.missing.toArray()) +
+                " are referenced, but not available"
+            );
+        }
+        return r;
+    }
+
+    /** Checks whether a method may be called.
+     *
+     * @param m the method
+     * @return <code>false</code> if the method is known to be unreachable
+     */
+    boolean isKept(MethodData m) {
+        final String cls = m.cls.getClassName();
+        if (missing.size() > 0 || !visited.contains(cls)) {
+            // not seen by the analysis, be conservative
+            return true;
+        }
+        return kept.contains(cls + '.' + m.getName() + m.getInternalSig());
+    }
+
+    /** Writes methods that are not kept. One per line, in the order
+     * their classes were reached.
+     *
+     * @param out the output
+     */
+    void report(Appendable out) throws IOException {
+        for (int i = 0; i < visited.size(); i++) {
+            final ClassData cd = load(visited.get(i));
+            if (cd == null) {
+                continue;
+            }
+            for (MethodData m : cd.getMethods()) {
+                if (!isKept(m)) {
+                    out.append(cd.getClassName()).append('.').
+                        append(m.getName()).append(m.getInternalSig()).
+                        append('\n');
+                }
+            }
+        }
+    }
+
+    private ClassData load(String name) {
+        final ClassData cd = find(name);
+        if (cd == null && !name.startsWith("java/") && !name.startsWith("javax/")) {
+            // may be loaded later
+            missing.addIfMissing(name);
+        }
+        // JDK classes that are not emulated are not part of the program
+        return cd;
+    }
+
+    private ClassData find(String name) {
+        try {
+            return classes.getClassData(name);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static void warning(String msg) {
+        System.err.println("Warning: " + msg);
+    }
+
+    /** Runtime classes are used by the generated code directly.
+     */
+    private static boolean isRuntime(String cls) {
+        return cls.startsWith("java/lang/")
+            || cls.startsWith("java/util/concurrent/atomic/")
+            || cls.startsWith("org/apidesign/bck2brwsr/emul/")
+            || cls.endsWith("/$JsCallbacks$");
+    }
+
+    private void reach(String name) {
+        if (name.startsWith("[")) {
+            final int at = name.indexOf('L');
+            if (at == -1) {
+                return;
+            }
+            name = name.substring(at + 1, name.length() - 1);
+        }
+        visited.addIfMissing(name);
+    }
+
+    private void keep(String cls, MethodData m) {
+        kept.addIfMissing(cls + '.' + m.getName() + m.getInternalSig());
+    }
+
+    /** Keeps all methods of a class and treats them as called on
+     * any object.
+     */
+    private void keepClass(String cls) {
+        reach(cls);
+        if (!keepAll.addIfMissing(cls)) {
+            return;
+        }
+        final ClassData cd = load(cls);
+        if (cd == null) {
+            return;
+        }
+        for (MethodData m : cd.getMethods()) {
+            keep(cls, m);
+            if (!m.isStatic() && !m.isConstructor()) {
+                call(m.getName() + m.getInternalSig());
+            }
+        }
+    }
+
+    private void visit(String cls) throws IOException {
+        final ClassData cd = load(cls);
+        if (cd == null) {
+            return;
+        }
+        final String sup = cd.getSuperClassName();
+        if (sup != null) {
+            reach(sup);
+        }
+        for (String iface : cd.getSuperInterfaces()) {
+            reach(iface);
+        }
+        final boolean runtime = isRuntime(cls);
+        final boolean all = runtime || keepAll.contains(cls);
+        scanScripts(cd);
+        for (MethodData m : cd.getMethods()) {
+            final String sig = m.getName() + m.getInternalSig();
+            final String key = cls + '.' + sig;
+            final String jsName = ByteCodeToJavaScript.findMethodName(m, new StringBuilder());
+            mangled.add(jsName, key);
+            named.add(m.getName(), key);
+            final boolean used = jsNames.contains(jsName)
+                || reflected.contains(m.getName());
+            boolean keep = all || used
+                || "<clinit>".equals(m.getName())
+                || "<init>()V".equals(sig)
+                || m.findAnnotationData(false) != null
+                || exported.isExplicitlyExported(m);
+            if (!m.isStatic() && !m.isConstructor()) {
+                declared.add(sig, cls);
+                if (called.contains(sig)) {
+                    keep = true;
+                } else if (runtime || used) {
+                    // the method may be called on any object
+                    call(sig);
+                }
+            }
+            if (keep) {
+                kept.addIfMissing(key);
+            }
+        }
+    }
+
+    private void scan(String key) throws IOException {
+        final int dot = key.indexOf('.');
+        final int paren = key.indexOf('(', dot);
+        final String cls = key.substring(0, dot);
+        final ClassData cd = load(cls);
+        if (cd == null) {
+            return;
+        }
+        final MethodData m = cd.findMethod(
+            key.substring(dot + 1, paren), key.substring(paren)
+        );
+        if (m == null) {
+            return;
+        }
+        scanBody(cd, m.findAnnotationData(true));
+        final byte[] code = m.getCode();
+        if (code == null) {
+            return;
+        }
+        for (TrapData t : m.getTrapData()) {
+            if (t.catch_cpx != 0) {
+                reach(cd.getClassName(t.catch_cpx));
+            }
+        }
+        final StringArray strings = new StringArray();
+        final StringArray literals = new StringArray();
+        boolean reflection = false;
+        boolean forName = false;
+        final int[] succ = new int[code.length + 1];
+        for (int pc = 0; pc < code.length; pc = next(code, pc, succ)) {
+            final int op = code[pc] & 0xff;
+            switch (op) {
+                case opc_invokestatic:
+                case opc_invokespecial: {
+                    final String[] mi = cd.getFieldInfoName(index(code, pc));
+                    reach(mi[0]);
+                    keepDeclared(mi[0], mi[1], mi[2]);
+                    if ("java/lang/Class".equals(mi[0]) && "forName".equals(mi[1])) {
+                        forName = true;
+                    }
+                    break;
+                }
+                case opc_invokevirtual:
+                case opc_invokeinterface: {
+                    final String[] mi = cd.getFieldInfoName(index(code, pc));
+                    call(mi[1] + mi[2]);
+                    if ("java/lang/Class".equals(mi[0]) && isReflective(mi[1])) {
+                        reflection = true;
+                    }
+                    break;
+                }
+                case opc_invokedynamic:
+                    // not analyzed, keep the whole class
+                    keepClass(cls);
+                    break;
+                case opc_getstatic:
+                case opc_putstatic:
+                case opc_getfield:
+                case opc_putfield:
+                    reach(cd.getFieldInfoName(index(code, pc))[0]);
+                    break;
+                case opc_new:
+                case opc_anewarray:
+                case opc_checkcast:
+                case opc_instanceof:
+                case opc_multianewarray:
+                    reach(cd.getClassName(index(code, pc)));
+                    break;
+                case opc_ldc:
+                case opc_ldc_w: {
+                    final int cpx = op == opc_ldc ? code[pc + 1] & 0xff : index(code, pc);
+                    if (cd.getTag(cpx) == CONSTANT_CLASS) {
+                        reach(cd.getClassName(cpx));
+                        literals.add(cd.getClassName(cpx));
+                    }
+                    if (cd.getTag(cpx) == CONSTANT_STRING) {
+                        strings.add(cd.StringValue(cpx));
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+        boolean resolved = !forName;
+        if (forName) {
+            for (String name : strings.toArray()) {
+                if (!isName(name, 0, name.length()) || name.indexOf('.') == -1) {
+                    continue;
+                }
+                final String c = name.replace('.', '/');
+                if (find(c) == null) {
+                    if (!isRuntime(cls)) {
+                        warning("Class " + name + " loaded by " + method(cls, m) + " is not available");
+                    }
+                    resolved = true;
+                    continue;
+                }
+                keepClass(c);
+                resolved = true;
+            }
+        }
+        if (reflection) {
+            for (String name : strings.toArray()) {
+                reflect(name);
+            }
+            for (String c : literals.toArray()) {
+                keepClass(c);
+            }
+            resolved &= forName || literals.size() > 0;
+        }
+        if (!resolved && !isRuntime(cls)) {
+            warning(
+                "Cannot resolve reflection in " + method(cls, m) +
+                ", methods it uses may be removed"
+            );
+        }
+    }
+
+    private static String method(String cls, MethodData m) {
+        return cls.replace('/', '.') + '.' + m.getName();
+    }
+
+    /** Methods of <code>java.lang.Class</code> giving access to members. */
+    private static boolean isReflective(String name) {
+        switch (name) {
+            case "getMethod":
+            case "getMethods":
+            case "getDeclaredMethod":
+            case "getDeclaredMethods":
+            case "getConstructor":
+            case "getConstructors":
+            case "getDeclaredConstructor":
+            case "getDeclaredConstructors":
+            case "newInstance":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /** Keeps a method the same way invokestatic and invokespecial
+     * find it - in the class or in one of its superclasses.
+     */
+    private void keepDeclared(String cls, String name, String sig) {
+        while (cls != null) {
+            final ClassData cd = load(cls);
+            if (cd == null) {
+                return;
+            }
+            final MethodData m = cd.findMethod(name, sig);
+            if (m != null) {
+                keep(cls, m);
+                return;
+            }
+            cls = cd.getSuperClassName();
+        }
+    }
+
+    private void call(String sig) {
+        if (!called.addIfMissing(sig)) {
+            return;
+        }
+        final StringArray in = declared.get(sig);
+        for (int i = 0; in != null && i < in.size(); i++) {
+            kept.addIfMissing(in.get(i) + '.' + sig);
+        }
+    }
+
+    private void jsName(String name) {
+        if (jsNames.addIfMissing(name)) {
+            use(mangled.get(name));
+        }
+    }
+
+    private void reflect(String name) {
+        if (reflected.addIfMissing(name)) {
+            use(named.get(name));
+        }
+    }
+
+    /** Keeps the methods and treats them as called on any object. */
+    private void use(StringArray in) {
+        for (int i = 0; in != null && i < in.size(); i++) {
+            final String key = in.get(i);
+            kept.addIfMissing(key);
+            call(key.substring(key.indexOf('.') + 1));
+        }
+    }
+
+    /** Methods named <code>name</code> in class <code>cls</code> are
+     * called back from JavaScript.
+     */
+    private void callback(String cls, String name) {
+        final ClassData cd = load(cls);
+        if (cd == null) {
+            return;
+        }
+        reach(cls);
+        for (MethodData m : cd.getMethods()) {
+            if (m.getName().equals(name)) {
+                keep(cls, m);
+                if (!m.isStatic()) {
+                    call(m.getName() + m.getInternalSig());
+                }
+            }
+        }
+    }
+
+    private void scanScripts(final ClassData cd) throws IOException {
+        final byte[] arr = cd.findAnnotationData(true);
+        if (arr == null) {
+            return;
+        }
+        final String[] scripts = new String[2];
+        new AnnotationParser(false, true) {
+            @Override
+            protected void visitAttr(String type, String attr, String at, String value) {
+                if (type.equals("Lorg/apidesign/bck2brwsr/core/ExtraJavaScript;")
+                    && "resource".equals(attr)) {
+                    scripts[0] = value;
+                }
+                if (type.equals("Lnet/java/html/js/JavaScriptResource;")
+                    && "value".equals(attr)) {
+                    if (value.startsWith("/")) {
+                        scripts[1] = value;
+                    } else {
+                        final String cn = cd.getClassName();
+                        scripts[1] = cn.substring(0, cn.lastIndexOf('/') + 1) + value;
+                    }
+                }
+            }
+        }.parse(arr, cd);
+        for (String script : scripts) {
+            if (script == null || script.isEmpty()) {
+                continue;
+            }
+            while (script.startsWith("/")) {
+                script = script.substring(1);
+            }
+            final InputStream is = resources.get(script);
+            if (is == null) {
+                continue;
+            }
+            final StringBuilder sb = new StringBuilder();
+            try {
+                for (;;) {
+                    final int ch = is.read();
+                    if (ch == -1) {
+                        break;
+                    }
+                    sb.append((char) ch);
+                }
+            } finally {
+                is.close();
+            }
+            scanJavaScript(sb.toString());
+        }
+    }
+
+    private void scanBody(ClassData cd, byte[] arr) throws IOException {
+        if (arr == null) {
+            return;
+        }
+        final StringArray bodies = new StringArray();
+        new AnnotationParser(false, true) {
+            @Override
+            protected void visitAttr(String type, String attr, String at, String value) {
+                if (type.endsWith("/JavaScriptBody;") && "body".equals(attr)) {
+                    bodies.add(value);
+                }
+            }
+        }.parse(arr, cd);
+        for (String body : bodies.toArray()) {
+            scanJavaScript(body);
+        }
+    }
+
+    /** Finds mangled method names and callbacks in form of
+     * <code>@pkg.Cls::method(signature)</code>.
+     */
+    private void scanJavaScript(String text) {
+        int at = 0;
+        while (at < text.length()) {
+            final char ch = text.charAt(at);
+            if (ch == '@') {
+                final int colons = text.indexOf("::", at);
+                final int paren = colons == -1 ? -1 : text.indexOf('(', colons);
+                if (paren != -1 && isName(text, at + 1, colons)
+                    && isName(text, colons + 2, paren)
+                ) {
+                    callback(
+                        text.substring(at + 1, colons).replace('.', '/'),
+                        text.substring(colons + 2, paren)
+                    );
+                    at = paren;
+                    continue;
+                }
+                at++;
+                continue;
+            }
+            if (!Character.isJavaIdentifierPart(ch)) {
+                at++;
+                continue;
+            }
+            int end = at;
+            while (end < text.length() && Character.isJavaIdentifierPart(text.charAt(end))) {
+                end++;
+            }
+            final String word = text.substring(at, end);
+            if (word.indexOf("__") > 0) {
+                jsName(word);
+            }
+            at = end;
+        }
+    }
+
+    private static boolean isName(String text, int from, int to) {
+        if (from >= to) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            final char ch = text.charAt(i);
+            if (ch != '.' && !Character.isJavaIdentifierPart(ch)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int index(byte[] code, int pc) {
+        return ((code[pc + 1] & 0xff) << 8) | (code[pc + 2] & 0xff);
+    }
+
+    /** Position of the instruction following the one at <code>pc</code>. */
+    private static int next(byte[] code, int pc, int[] succ) {
+        final int next = ResolvedClasses.successors(code, pc, succ);
+        if (next != -1) {
+            return next;
+        }
+        switch (code[pc] & 0xff) {
+            case opc_wide:
+                return pc + 4;
+            case opc_ret:
+                return pc + 2;
+            case opc_jsr:
+                return pc + 3;
+            default:
+                // jsr_w, goto_w
+                return pc + 5;
+        }
+    }
+
+    /** Maps keys to lists of values. */
+    private static final class Index {
+        private final StringArray keys = new StringArray();
+        private StringArray[] values = new StringArray[64];
+
+        void add(String key, String value) {
+            int at = keys.indexOf(key);
+            if (at == -1) {
+                at = keys.size();
+                keys.add(key);
+                if (at == values.length) {
+                    StringArray[] arr = new StringArray[at * 2];
+                    System.arraycopy(values, 0, arr, 0, at);
+                    values = arr;
+                }
+                values[at] = new StringArray();
+            }
+            values[at].add(value);
+        }
+
+        StringArray get(String key) {
+            final int at = keys.indexOf(key);
+            return at == -1 ? null : values[at];
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import static org.apidesign.vm4brwsr.ByteCodeParser.*;
+
+/** Class initialization analysis of a method. Generated code refers to
+ * other classes via <code>refs_X</code> variables of the class function
+ * which are resolved (and the class initialized) on first use by
+ * <code>(refs_X || (refs_X = vm.X(false)))</code>. The analysis finds
+ * instructions that are reached only through paths which have already
+ * resolved a class. A class used by more than one instruction is
+ * then resolved once into a local variable of the method by the first
+ * instruction on each path and the others access the local variable
+ * directly. Exception handlers assume nothing is resolved.
+ * The implementation relies only on arrays as it is translated to
+ * JavaScript together with the rest of the VM.
+ */
+final class ResolvedClasses {
+    private final StringArray names;
+    private final boolean[] reused;
+    private final int[] gen;
+    private final int[][] in;
+
+    private ResolvedClasses(
+        StringArray names, boolean[] reused, int[] gen, int[][] in
+    ) {
+        this.names = names;
+        this.reused = reused;
+        this.gen = gen;
+        this.in = in;
+    }
+
+    /** Analyzes the code of a method.
+     *
+     * @param code the bytecode of the method
+     * @param traps exception table of the method
+     * @param touched for each instruction the class it resolves or
+     *   <code>null</code>
+     * @return the analysis or <code>null</code> if there is nothing to
+     *   hoist or the code uses subroutines
+     */
+    static ResolvedClasses create(
+        byte[] code, TrapData[] traps, String[] touched
+    ) {
+        final int len = code.length;
+        StringArray seen = new StringArray();
+        StringArray names = new StringArray();
+        for (int i = 0; i < len; i++) {
+            final String n = touched[i];
+            if (n != null && !seen.addIfMissing(n)) {
+                names.addIfMissing(n);
+            }
+        }
+        if (names.size() == 0) {
+            return null;
+        }
+        final int words = (names.size() + 31) / 32;
+        final int[] gen = new int[len];
+        for (int i = 0; i < len; i++) {
+            gen[i] = touched[i] == null ? -1 : names.indexOf(touched[i]);
+        }
+        final boolean[] handler = new boolean[len];
+        final int[][] in = new int[len][];
+        for (TrapData t : traps) {
+            final int h = t.handler_pc & 0xffff;
+            handler[h] = true;
+            in[h] = new int[words];
+        }
+        in[0] = new int[words];
+
+        final int[] succ = new int[len + 1];
+        for (boolean changed = true; changed;) {
+            changed = false;
+            for (int pc = 0; pc < len;) {
+                final int next = successors(code, pc, succ);
+                if (next < 0) {
+                    return null;
+                }
+                if (in[pc] != null) {
+                    final int[] out = in[pc].clone();
+                    if (gen[pc] >= 0) {
+                        out[gen[pc] / 32] |= 1 << (gen[pc] % 32);
+                    }
+                    for (int s = 1; s <= succ[0]; s++) {
+                        final int to = succ[s];
+                        if (handler[to]) {
+                            continue;
+                        }
+                        if (in[to] == null) {
+                            in[to] = out.clone();
+                            changed = true;
+                            continue;
+                        }
+                        for (int w = 0; w < words; w++) {
+                            final int both = in[to][w] & out[w];
+                            if (both != in[to][w]) {
+                                in[to][w] = both;
+                                changed = true;
+                            }
+                        }
+                    }
+                }
+                pc = next;
+            }
+        }
+        // hoist only classes some instruction finds already resolved
+        final boolean[] reused = new boolean[names.size()];
+        boolean any = false;
+        for (int pc = 0; pc < len; pc++) {
+            if (gen[pc] >= 0 && has(in[pc], gen[pc])) {
+                reused[gen[pc]] = true;
+                any = true;
+            }
+        }
+        return any ? new ResolvedClasses(names, reused, gen, in) : null;
+    }
+
+    /** The class the instruction has to resolve into a local variable.
+     *
+     * @param pc the instruction
+     * @return name of the class or <code>null</code>
+     */
+    String resolve(int pc) {
+        final int g = gen[pc];
+        if (g < 0 || !reused[g] || has(in[pc], g)) {
+            return null;
+        }
+        return names.get(g);
+    }
+
+    /** Can the instruction use the local variable holding the class?
+     *
+     * @param pc the instruction
+     * @param className mangled name of the class
+     * @return <code>true</code> if the class has been resolved on every
+     *   path to the instruction or by the instruction itself
+     */
+    boolean isResolved(int pc, String className) {
+        final int idx = names.indexOf(className);
+        if (idx < 0 || !reused[idx]) {
+            return false;
+        }
+        return gen[pc] == idx || has(in[pc], idx);
+    }
+
+    private static boolean has(int[] set, int idx) {
+        return set != null && (set[idx / 32] & (1 << (idx % 32))) != 0;
+    }
+
+    /** Finds successors of an instruction.
+     *
+     * @param code the bytecode
+     * @param pc the instruction
+     * @param succ array to put count of successors and then the successors to
+     * @return position of next instruction or <code>-1</code> if the
+     *   instruction is not supported by the analysis
+     */
+    static int successors(byte[] code, int pc, int[] succ) {
+        final int op = code[pc] & 0xff;
+        int cnt = 0;
+        int next;
+        switch (op) {
+            case opc_ifeq: case opc_ifne: case opc_iflt: case opc_ifge:
+            case opc_ifgt: case opc_ifle: case opc_if_icmpeq:
+            case opc_if_icmpne: case opc_if_icmplt: case opc_if_icmpge:
+            case opc_if_icmpgt: case opc_if_icmple: case opc_if_acmpeq:
+            case opc_if_acmpne: case opc_ifnull: case opc_ifnonnull:
+                next = pc + 3;
+                succ[++cnt] = pc + ControlFlow.readShort(code, pc + 1);
+                succ[++cnt] = next;
+                break;
+            case opc_goto:
+                next = pc + 3;
+                succ[++cnt] = pc + ControlFlow.readShort(code, pc + 1);
+                break;
+            case opc_tableswitch: {
+                int table = pc / 4 * 4 + 4;
+                succ[++cnt] = pc + ControlFlow.readInt(code, table);
+                int low = ControlFlow.readInt(code, table + 4);
+                int high = ControlFlow.readInt(code, table + 8);
+                table += 12;
+                for (int k = low; k <= high; k++) {
+                    succ[++cnt] = pc + ControlFlow.readInt(code, table);
+                    table += 4;
+                }
+                next = table;
+                break;
+            }
+            case opc_lookupswitch: {
+                int table = pc / 4 * 4 + 4;
+                succ[++cnt] = pc + ControlFlow.readInt(code, table);
+                int n = ControlFlow.readInt(code, table + 4);
+                table += 8;
+                while (n-- > 0) {
+                    succ[++cnt] = pc + ControlFlow.readInt(code, table + 4);
+                    table += 8;
+                }
+                next = table;
+                break;
+            }
+            case opc_wide: {
+                final int wideOp = code[pc + 1] & 0xff;
+                if (wideOp == opc_ret) {
+                    return -1;
+                }
+                next = pc + (wideOp == opc_iinc ? 6 : 4);
+                succ[++cnt] = next;
+                break;
+            }
+            case opc_jsr: case opc_jsr_w: case opc_ret: case opc_goto_w:
+                return -1;
+            case opc_ireturn: case opc_lreturn: case opc_freturn:
+            case opc_dreturn: case opc_areturn: case opc_return:
+            case opc_athrow:
+                next = pc + 1;
+                break;
+            default:
+                next = pc + ControlFlow.length(op);
+                if (next < code.length) {
+                    succ[++cnt] = next;
+                }
+        }
+        succ[0] = cnt;
+        return next;
+    }
+}
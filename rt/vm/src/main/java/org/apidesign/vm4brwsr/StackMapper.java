@@ -77,9 +77,8 @@ final class StackMapper {
     throws IOException {
         StringBuilder sb = new StringBuilder();
         ByteCodeToJavaScript.emitImpl(sb, format, arr);
-        String[] values = stackValues.toArray();
         final int last = stackTypeIndexPairs.getSize() - 1;
-        values[last] = sb.toString();
+        stackValues.set(last, sb.toString());
         dirty = true;
         final int value = (last << 8) | (varType & 0xff);
         stackTypeIndexPairs.set(last, value);
@@ -218,9 +217,8 @@ final class StackMapper {
     }
 
     private void addStackValue(int at, final String val) {
-        final String[] arr = stackValues.toArray();
-        if (arr.length > at) {
-            arr[at] = val;
+        if (stackValues.size() > at) {
+            stackValues.set(at, val);
         } else {
             stackValues.add(val);
         }
@@ -17,98 +17,113 @@
  */
 package org.apidesign.vm4brwsr;
 
-/**
+/** Growable array of strings. The array grows geometrically and
+ * once it gets bigger, membership queries are answered by a hash
+ * index built on demand. Only arrays are used, as the class is 
+ * translated to JavaScript and used by {@link VMLazy} in the browser.
  *
  * @author Jaroslav Tulach <jtulach@netbeans.org>
  */
 class StringArray {
+    private static final int INDEX_THRESHOLD = 8;
+
     private String[] arr;
+    private int size;
+    private volatile int[] index;
 
     public StringArray() {
     }
 
     private StringArray(String[] arr) {
         this.arr = arr;
+        this.size = arr.length;
     }
     
     public void add(String s) {
-        add(s, false);
-    }
-    private boolean add(String s, boolean check) {
         if (arr == null) {
-            arr = new String[1];
-        } else {
-            String[] tmp = new String[arr.length + 1];
-            for (int i = 0; i < arr.length; i++) {
-                if (check && s.equals(arr[i])) {
-                    return false;
-                }
+            arr = new String[4];
+        } else if (size == arr.length) {
+            String[] tmp = new String[size * 2];
+            for (int i = 0; i < size; i++) {
                 tmp[i] = arr[i];
             }
             arr = tmp;
         }
-        arr[arr.length - 1] = s;
-        return true;
+        arr[size++] = s;
+        final int[] idx = index;
+        if (idx != null) {
+            if (size * 2 > idx.length) {
+                index = null;
+            } else {
+                indexAdd(idx, size - 1);
+            }
+        }
     }
 
     StringArray addAndNew(String... values) {
-        int j;
-        String[] tmp;
-        if (arr == null) {
-            tmp = new String[values.length];
-            j = 0;
-        } else {
-            tmp = new String[arr.length + values.length];
-            for (int i = 0; i < arr.length; i++) {
-                tmp[i] = arr[i];
-            }
-            j = arr.length;
+        String[] tmp = new String[size + values.length];
+        for (int i = 0; i < size; i++) {
+            tmp[i] = arr[i];
         }
-        for (int i = 0; i < values.length;) {
+        for (int i = 0, j = size; i < values.length;) {
             tmp[j++] = values[i++];
         }
         return new StringArray(tmp);
     }
     
     public String[] toArray() {
-        return arr == null ? new String[0] : arr;
+        if (arr == null) {
+            return new String[0];
+        }
+        if (arr.length != size) {
+            String[] tmp = new String[size];
+            for (int i = 0; i < size; i++) {
+                tmp[i] = arr[i];
+            }
+            arr = tmp;
+        }
+        return arr;
     }
     
     static StringArray asList(String... names) {
         return new StringArray(names);
     }
 
+    int size() {
+        return size;
+    }
+
+    String get(int at) {
+        return arr[at];
+    }
+
+    void set(int at, String s) {
+        arr[at] = s;
+        index = null;
+    }
+
     void reverse() {
-        for (int i = 0, j = arr.length; i < j; i++) {
+        for (int i = 0, j = size; i < j; i++) {
             String s = arr[i];
             arr[i] = arr[--j];
             arr[j] = s;
         }
+        index = null;
     }
 
     boolean contains(String n) {
-        if (arr == null) {
-            return false;
-        }
-        for (int i = 0; i < arr.length; i++) {
-            if (n.equals(arr[i])) {
-                return true;
-            }
-        }
-        return false;
+        return indexOf(n) != -1;
     }
 
     void delete(int indx) {
-        if (arr == null || indx < 0 || indx >= arr.length) {
+        if (arr == null || indx < 0 || indx >= size) {
             return;
         }
-        String[] tmp = new String[arr.length - 1];
-        for (int i = 0, j = 0; i < arr.length; i++) {
-            if (i != indx) {
-                tmp[j++] = arr[i];
-            }
+        for (int i = indx + 1; i < size; i++) {
+            arr[i - 1] = arr[i];
         }
-        arr = tmp;
+        arr[--size] = null;
+        index = null;
     }
     void remove(String item) {
         int f = indexOf(item);
@@ -118,7 +133,14 @@ class StringArray {
     }
 
     int indexOf(String ic) {
-        if (arr != null) for (int i = 0; i < arr.length; i++) {
+        if (size > INDEX_THRESHOLD) {
+            int[] idx = index;
+            if (idx == null) {
+                idx = reindex();
+            }
+            return idx[slot(idx, ic)] - 1;
+        }
+        for (int i = 0; i < size; i++) {
             if (ic.equals(arr[i])) {
                 return i;
             }
@@ -130,15 +152,58 @@ class StringArray {
         String s = arr[count];
         if (clear) {
             arr[count] = null;
+            index = null;
         }
         return s;
     }
 
     void clear() {
         arr = null;
+        size = 0;
+        index = null;
     }
 
     boolean addIfMissing(String s) {
-        return add(s, true);
+        if (contains(s)) {
+            return false;
+        }
+        add(s);
+        return true;
+    }
+
+    private int[] reindex() {
+        int len = 16;
+        while (len < size * 2) {
+            len *= 2;
+        }
+        final int[] idx = new int[len];
+        for (int i = 0; i < size; i++) {
+            indexAdd(idx, i);
+        }
+        index = idx;
+        return idx;
+    }
+
+    private void indexAdd(int[] idx, int at) {
+        String s = arr[at];
+        if (s == null) {
+            return;
+        }
+        int slot = slot(idx, s);
+        if (idx[slot] == 0) {
+            idx[slot] = at + 1;
+        }
+    }
+
+    private int slot(int[] idx, String s) {
+        final int mask = idx.length - 1;
+        int i = s.hashCode() & mask;
+        for (;;) {
+            int at = idx[i];
+            if (at == 0 || s.equals(arr[at - 1])) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
     }
 }
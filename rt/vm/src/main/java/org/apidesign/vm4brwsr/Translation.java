@@ -0,0 +1,42 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import org.apidesign.bck2brwsr.core.ExtraJavaScript;
+
+/** Result of translating a single class by a
+ * {@link VM#fork(java.lang.Appendable) fork} of the {@link VM}.
+ */
+@ExtraJavaScript(processByteCode = false, resource="")
+final class Translation {
+    VM fork;
+    CharSequence code;
+    String initCode;
+
+    Translation(VM fork, CharSequence code, String initCode) {
+        this.fork = fork;
+        this.code = code;
+        this.initCode = initCode;
+    }
+
+    void clear() {
+        fork = null;
+        code = null;
+        initCode = null;
+    }
+}
@@ -0,0 +1,330 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apidesign.bck2brwsr.core.ExtraJavaScript;
+
+/** Persistent cache of translated classes. Each entry holds the code
+ * generated for a single class together with references, scripts and
+ * invokers its translation recorded. The entry is found by the SHA-1 of
+ * the class file and of the configuration of the {@link VM}. It is only
+ * used when none of the other resources consulted during translation
+ * (superclasses, classes of accessed members, their
+ * <code>package-info</code> and inlined scripts) has changed since.
+ * <p>
+ * The cache stores the code before it is handed to the
+ * {@link ClosureWrapper obfuscator}. Obfuscation processes the whole
+ * script, so the same entries serve all {@link ObfuscationLevel levels}.
+ */
+@ExtraJavaScript(processByteCode = false, resource="")
+final class TranslationCache {
+    private static final int MAGIC = 0xb2b0c0de;
+    private static final String MISSING = "-";
+
+    private final File dir;
+    private final Bck2Brwsr.Resources resources;
+    private final String configuration;
+    private final ConcurrentMap<String, String> states;
+
+    TranslationCache(
+        File dir, Bck2Brwsr.Resources resources, VM vm, StringArray exported
+    ) throws IOException {
+        this.dir = dir;
+        this.resources = resources;
+        this.states = new ConcurrentHashMap<String, String>();
+
+        MessageDigest md = newDigest();
+        updateTranslator(md);
+        md.update(vm.getClass().getName().getBytes("UTF-8"));
+        md.update((byte) (vm.typedArrays() ? 1 : 0));
+        md.update((byte) (vm.directFields() ? 1 : 0));
+        md.update((byte) (vm.inline() ? 1 : 0));
+        md.update((byte) (vm.hoistClasses() ? 1 : 0));
+        md.update((byte) (vm.structuredFlow() ? 1 : 0));
+        for (String e : exported.toArray()) {
+            md.update((byte) 0);
+            md.update(e.getBytes("UTF-8"));
+        }
+        this.configuration = hex(md.digest());
+        dir.mkdirs();
+    }
+
+    /** Digests the translator itself. That is the JAR file it is loaded
+     * from or all classes in its package when running from a directory.
+     */
+    private static void updateTranslator(MessageDigest md) throws IOException {
+        final URL u = TranslationCache.class.getResource("TranslationCache.class");
+        if (u != null && "jar".equals(u.getProtocol())) {
+            JarURLConnection conn = (JarURLConnection) u.openConnection();
+            update(md, conn.getJarFileURL().openStream());
+            return;
+        }
+        if (u != null && "file".equals(u.getProtocol())) {
+            final File pkg;
+            try {
+                pkg = new File(u.toURI()).getParentFile();
+            } catch (URISyntaxException ex) {
+                throw new IOException(ex);
+            }
+            String[] names = pkg.list();
+            if (names != null) {
+                Arrays.sort(names);
+                for (String n : names) {
+                    if (n.endsWith(".class")) {
+                        md.update(n.getBytes("UTF-8"));
+                        update(md, new FileInputStream(new File(pkg, n)));
+                    }
+                }
+                return;
+            }
+        }
+        // cannot tell whether the translator has changed, never reuse entries
+        md.update(Long.toString(System.nanoTime()).getBytes("UTF-8"));
+    }
+
+    /** Finds previous translation of a class.
+     *
+     * @param vm the VM to fork and translate for
+     * @param name the name of the class
+     * @return the translation or <code>null</code> if there is no
+     *   up-to-date translation in the cache
+     * @throws IOException if the resources cannot be read
+     */
+    Translation find(VM vm, String name) throws IOException {
+        final File entry = entry(vm, name);
+        if (!entry.isFile()) {
+            return null;
+        }
+        try (DataInputStream is = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(entry))
+        )) {
+            if (is.readInt() != MAGIC || !name.equals(is.readUTF())) {
+                return null;
+            }
+            int deps = is.readInt();
+            for (int i = 0; i < deps; i++) {
+                String resource = is.readUTF();
+                if (!is.readUTF().equals(state(vm, resource))) {
+                    return null;
+                }
+            }
+            final StringBuilder code = new StringBuilder(readText(is));
+            final String initCode = is.readBoolean() ? readText(is) : null;
+            final VM fork = vm.fork(code);
+            int refs = is.readInt();
+            for (int i = 0; i < refs; i++) {
+                fork.references().addIfMissing(is.readUTF());
+            }
+            int scripts = is.readInt();
+            for (int i = 0; i < scripts; i++) {
+                fork.scripts().add(is.readUTF());
+            }
+            int invokers = is.readInt();
+            for (int i = 0; i < invokers; i++) {
+                fork.invokerNames().add(is.readUTF());
+                fork.invokerMethods().add(readText(is));
+            }
+            fork.exportedCount = is.readInt();
+            return new Translation(fork, code, initCode);
+        } catch (IOException | RuntimeException ex) {
+            // broken entry, translate again
+            return null;
+        }
+    }
+
+    /** Stores a translation into the cache. Failures to write are ignored,
+     * the class is going to be translated again next time.
+     *
+     * @param vm the VM that requested the translation
+     * @param name the name of the class
+     * @param t the translation made by a fork of the VM
+     * @throws IOException if the resources cannot be read
+     */
+    void store(VM vm, String name, Translation t) throws IOException {
+        final VM fork = t.fork;
+        final StringArray deps = new StringArray();
+        for (String resource : fork.dependencies().toArray()) {
+            deps.addIfMissing(resource);
+            if (resource.endsWith(".class")) {
+                int slash = resource.lastIndexOf('/');
+                if (slash > 0) {
+                    deps.addIfMissing(resource.substring(0, slash) + "/package-info.class");
+                }
+            }
+        }
+        final String[] depStates = new String[deps.size()];
+        for (int i = 0; i < depStates.length; i++) {
+            depStates[i] = state(vm, deps.get(i));
+        }
+
+        final File entry = entry(vm, name);
+        File tmp = null;
+        try {
+            tmp = File.createTempFile("entry", ".tmp", dir);
+            try (DataOutputStream os = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp))
+            )) {
+                os.writeInt(MAGIC);
+                os.writeUTF(name);
+                os.writeInt(depStates.length);
+                for (int i = 0; i < depStates.length; i++) {
+                    os.writeUTF(deps.get(i));
+                    os.writeUTF(depStates[i]);
+                }
+                writeText(os, t.code);
+                os.writeBoolean(t.initCode != null);
+                if (t.initCode != null) {
+                    writeText(os, t.initCode);
+                }
+                final ClassWorklist refs = fork.references();
+                os.writeInt(refs.size());
+                for (int i = 0; i < refs.size(); i++) {
+                    os.writeUTF(refs.name(i));
+                }
+                final String[] scripts = fork.scripts().toArray();
+                os.writeInt(scripts.length);
+                for (String s : scripts) {
+                    os.writeUTF(s);
+                }
+                final StringArray invokers = fork.invokerNames();
+                os.writeInt(invokers.size());
+                for (int i = 0; i < invokers.size(); i++) {
+                    os.writeUTF(invokers.get(i));
+                    writeText(os, fork.invokerMethods().get(i));
+                }
+                os.writeInt(fork.exportedCount);
+            }
+            Files.move(tmp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            tmp = null;
+        } catch (IOException ex) {
+            // the cache is just an optimization
+        } finally {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private File entry(VM vm, String name) throws IOException {
+        MessageDigest md = newDigest();
+        md.update(configuration.getBytes("UTF-8"));
+        md.update((byte) 0);
+        md.update(name.getBytes("UTF-8"));
+        md.update((byte) 0);
+        md.update(state(vm, name + ".class").getBytes("UTF-8"));
+        return new File(dir, hex(md.digest()));
+    }
+
+    /** Digest of the content of a resource. Classes that are
+     * {@link VM#isExternalClass(java.lang.String) external} to the
+     * generated library are translated differently, so their state
+     * reflects that as well.
+     */
+    private String state(VM vm, String resource) throws IOException {
+        String state = states.get(resource);
+        if (state == null) {
+            InputStream is;
+            try {
+                is = resources.get(resource);
+            } catch (IOException ex) {
+                // some providers signal missing resources this way
+                is = null;
+            }
+            if (is == null) {
+                state = MISSING;
+            } else {
+                MessageDigest md = newDigest();
+                update(md, is);
+                state = hex(md.digest());
+            }
+            if (resource.endsWith(".class") && vm.isExternalClass(
+                resource.substring(0, resource.length() - 6)
+            )) {
+                state += '!';
+            }
+            String prev = states.putIfAbsent(resource, state);
+            if (prev != null) {
+                state = prev;
+            }
+        }
+        return state;
+    }
+
+    private static void update(MessageDigest md, InputStream is) throws IOException {
+        try {
+            byte[] arr = new byte[8192];
+            for (;;) {
+                int len = is.read(arr);
+                if (len == -1) {
+                    break;
+                }
+                md.update(arr, 0, len);
+            }
+        } finally {
+            is.close();
+        }
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    private static String hex(byte[] arr) {
+        StringBuilder sb = new StringBuilder(arr.length * 2);
+        for (byte b : arr) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    private static void writeText(DataOutputStream os, CharSequence text) throws IOException {
+        byte[] arr = text.toString().getBytes("UTF-8");
+        os.writeInt(arr.length);
+        os.write(arr);
+    }
+
+    private static String readText(DataInputStream is) throws IOException {
+        byte[] arr = new byte[is.readInt()];
+        is.readFully(arr);
+        return new String(arr, "UTF-8");
+    }
+}
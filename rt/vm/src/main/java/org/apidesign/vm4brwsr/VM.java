@@ -33,20 +33,57 @@ abstract class VM extends ByteCodeToJavaScript {
 
     private final Bck2Brwsr.Resources resources;
     private final ExportedSymbols exportedSymbols;
-    private final StringBuilder invokerMethods;
+    private final StringArray invokerNames;
+    private final StringArray invokerMethods;
     private final StringArray asBinary;
+    private final StringArray dependencies;
+    private ParallelTranslator translator;
+    private TranslationCache cache;
+    private boolean typedArrays;
+    private boolean directFields;
+    private boolean inline;
+    private boolean hoistClasses;
+    private boolean structuredFlow;
+    private ClassHierarchy hierarchy;
+    private ReachableMethods reachable;
     int exportedCount;
 
     private VM(
         Appendable out, Bck2Brwsr.Resources resources, 
-        StringArray explicitlyExported, StringArray asBinary
+        StringArray explicitlyExported, StringArray asBinary,
+        ClassCache classes
     ) {
         super(out);
         this.resources = resources;
-        this.classDataCache = new ClassDataCache(resources);
+        this.classDataCache = new ClassDataCache(resources, classes);
         this.exportedSymbols = new ExportedSymbols(resources, explicitlyExported);
-        this.invokerMethods = new StringBuilder();
+        this.invokerNames = new StringArray();
+        this.invokerMethods = new StringArray();
         this.asBinary = asBinary;
+        this.dependencies = null;
+    }
+
+    private VM(VM parent, Appendable out) {
+        super(out);
+        this.resources = parent.resources;
+        this.exportedSymbols = parent.exportedSymbols;
+        this.invokerNames = new StringArray();
+        this.invokerMethods = new StringArray();
+        this.asBinary = parent.asBinary;
+        this.typedArrays = parent.typedArrays;
+        this.directFields = parent.directFields;
+        this.inline = parent.inline;
+        this.hoistClasses = parent.hoistClasses;
+        this.structuredFlow = parent.structuredFlow;
+        this.hierarchy = parent.hierarchy;
+        this.reachable = parent.reachable;
+        if (parent.cache != null) {
+            this.dependencies = new StringArray();
+            this.classDataCache = parent.classDataCache.recording(dependencies);
+        } else {
+            this.dependencies = null;
+            this.classDataCache = parent.classDataCache;
+        }
     }
 
     static {
@@ -67,6 +104,11 @@ abstract class VM extends ByteCodeToJavaScript {
     static void compile(Appendable out, 
         Bck2Brwsr config
     ) throws IOException {
+        if (config.cache() != null && (config.inline() || config.treeShaking())) {
+            throw new IllegalStateException(
+                "Cache cannot be combined with inlining nor tree shaking"
+            );
+        }
         String[] both = config.classes().toArray();
         
         final StringArray fixedNames = new StringArray();
@@ -79,7 +121,8 @@ abstract class VM extends ByteCodeToJavaScript {
             fixedNames.add(VM.class.getName().replace('.', '/'));
             vm = new Extension(out, 
                 config.getResources(), both, config.exported(),
-                config.allResources(), config.classpath()
+                config.allResources(), config.classpath(),
+                config.classCache()
             );
         } else {
             if (config.includeVM()) {
@@ -87,18 +130,56 @@ abstract class VM extends ByteCodeToJavaScript {
             }
             vm = new Standalone(out, 
                 config.getResources(), config.exported(),
-                config.allResources()
+                config.allResources(), config.classCache()
             );
         }            
-        vm.doCompile(fixedNames.addAndNew(both));
+        vm.typedArrays = config.typedArrays();
+        vm.directFields = config.directFields();
+        vm.inline = config.inline();
+        vm.hoistClasses = config.hoistClasses();
+        vm.structuredFlow = config.structuredFlow();
+        if (vm.inline && !config.isExtension()) {
+            vm.hierarchy = ClassHierarchy.create(
+                vm.classDataCache, fixedNames.addAndNew(both).toArray()
+            );
+        }
+        if (config.treeShaking() && !config.isExtension()) {
+            final StringBuilder runtime = new StringBuilder();
+            final VM script = vm.fork(runtime);
+            script.generatePrologue();
+            script.generateEpilogue();
+            vm.reachable = ReachableMethods.create(
+                vm.classDataCache, vm.resources, vm.exportedSymbols,
+                fixedNames.addAndNew(both).toArray(), runtime.toString()
+            );
+        }
+        if (config.cache() != null) {
+            vm.cache = new TranslationCache(
+                config.cache(), vm.resources, vm, config.exported()
+            );
+        }
+        vm.doCompile(fixedNames.addAndNew(both), config.parallelism());
+        if (vm.reachable != null && config.removed() != null) {
+            vm.reachable.report(config.removed());
+        }
     }
 
-    private void doCompile(StringArray names) throws IOException {
+    private void doCompile(StringArray names, int parallelism) throws IOException {
         generatePrologue();
         append(
                 "\n  var invoker = {};");
-        generateBody(names);
-        append(invokerMethods);
+        if (parallelism > 1) {
+            translator = new ParallelTranslator(this, parallelism);
+            try {
+                generateBody(names);
+            } finally {
+                translator.shutdown();
+                translator = null;
+            }
+        } else {
+            generateBody(names);
+        }
+        flushInvokers();
         
         for (String r : asBinary.toArray()) {
             append("\n  ").append(getExportsObject()).append("['registerResource']('");
@@ -145,6 +226,15 @@ abstract class VM extends ByteCodeToJavaScript {
     protected abstract boolean isExternalClass(String className);
 
     protected abstract void lazyReference(Appendable out, String n) throws IOException;
+
+    /** Creates new translator that shares configuration and caches with
+     * this one, but writes to different output. Used to translate
+     * classes in parallel.
+     *
+     * @param out the output for the new translator
+     * @return new instance of the same type as this one
+     */
+    protected abstract VM fork(Appendable out);
     
     @Override
     protected final void declaredClass(ClassData classData, String mangledName)
@@ -167,6 +257,83 @@ abstract class VM extends ByteCodeToJavaScript {
         return compile(classData);
     }
 
+    /** Translates a class by a {@link #fork(java.lang.Appendable) fork}
+     * of this translator. Reuses previous translation of the class
+     * when {@link Bck2Brwsr#cache(java.io.File) caching} is on.
+     *
+     * @param name the class to translate
+     * @return the translation
+     */
+    final Translation translate(String name) throws IOException {
+        if (cache != null) {
+            Translation t = cache.find(this, name);
+            if (t != null) {
+                return t;
+            }
+        }
+        final StringBuilder sb = new StringBuilder();
+        final VM fork = fork(sb);
+        final String initCode = fork.generateClass(name);
+        final Translation t = new Translation(fork, sb, initCode);
+        if (cache != null) {
+            cache.store(this, name, t);
+        }
+        return t;
+    }
+
+    /** Includes the result of a translation done by a {@link #fork(java.lang.Appendable) forked}
+     * translator as if the class was translated by this one.
+     *
+     * @param fork the translator that translated the class
+     * @param code the code it generated
+     */
+    final void include(VM fork, CharSequence code) throws IOException {
+        append(code);
+        for (int i = 0; i < fork.references.size(); i++) {
+            references.addIfMissing(fork.references.name(i));
+        }
+        for (String script : fork.scripts.toArray()) {
+            scripts.add(script);
+        }
+        for (int i = 0; i < fork.invokerNames.size(); i++) {
+            if (invokerNames.addIfMissing(fork.invokerNames.get(i))) {
+                invokerMethods.add(fork.invokerMethods.get(i));
+            }
+        }
+        exportedCount += fork.exportedCount;
+    }
+
+    /** Names of classes referenced so far.
+     */
+    final ClassWorklist references() {
+        return references;
+    }
+
+    /** Scripts required so far.
+     */
+    final StringArray scripts() {
+        return scripts;
+    }
+
+    /** Names of invokers used so far.
+     */
+    final StringArray invokerNames() {
+        return invokerNames;
+    }
+
+    /** Definitions of invokers not written yet. In a fork, that
+     * is all of them, in the same order as {@link #invokerNames()}.
+     */
+    final StringArray invokerMethods() {
+        return invokerMethods;
+    }
+
+    /** Resources read during translation by a fork of a caching translator.
+     */
+    final StringArray dependencies() {
+        return dependencies;
+    }
+
     @Override
     protected void declaredField(FieldData fieldData,
                                  String destObject,
@@ -193,35 +360,32 @@ abstract class VM extends ByteCodeToJavaScript {
     }
 
     private void generateBody(StringArray names) throws IOException {
-        StringArray processed = new StringArray();
-        StringArray initCode = new StringArray();
-        StringArray skipClass = new StringArray();
         for (String baseClass : names.toArray()) {
             references.add(baseClass);
             for (;;) {
-                String name = null;
-                for (String n : references.toArray()) {
-                    if (skipClass.contains(n)) {
-                        continue;
-                    }
-                    if (processed.contains(n)) {
-                        continue;
-                    }
-                    name = n;
-                }
+                String name = references.next();
                 if (name == null) {
                     break;
                 }
                 InputStream is = resources.get(name + ".class");
                 if (is == null) {
                     lazyReference(this, name);
-                    skipClass.add(name);
+                    references.skipped(name);
                     continue;
                 }
                 try {
-                    String ic = generateClass(name);
-                    processed.add(name);
-                    initCode.add(ic == null ? "" : ic);
+                    final String ic;
+                    if (translator != null) {
+                        ic = translator.generateClass(name);
+                    } else if (cache != null) {
+                        Translation t = translate(name);
+                        include(t.fork, t.code);
+                        ic = t.initCode;
+                    } else {
+                        ic = generateClass(name);
+                    }
+                    references.processed(name, ic);
+                    flushInvokers();
                 } catch (RuntimeException ex) {
                     throw new IOException("Error while compiling " + name + "\n", ex);
                 }
@@ -236,20 +400,19 @@ abstract class VM extends ByteCodeToJavaScript {
             }
             scripts = new StringArray();
 
-            StringArray toInit = StringArray.asList(references.toArray());
-            toInit.reverse();
+            references.initialize(this);
+        }
+    }
 
-            for (String ic : toInit.toArray()) {
-                int indx = processed.indexOf(ic);
-                if (indx >= 0) {
-                    final String theCode = initCode.toArray()[indx];
-                    if (!theCode.isEmpty()) {
-                        append(theCode).append("\n");
-                    }
-                    initCode.toArray()[indx] = "";
-                }
-            }
+    /** Writes definitions of invokers collected while translating
+     * the last class. The invokers are only called once the whole
+     * script is loaded, so they don't need to wait till the end.
+     */
+    private void flushInvokers() throws IOException {
+        for (int i = 0; i < invokerMethods.size(); i++) {
+            append(invokerMethods.get(i));
         }
+        invokerMethods.clear();
     }
 
     final void requireResourceImpl(String resource) throws IOException {
@@ -257,6 +420,9 @@ abstract class VM extends ByteCodeToJavaScript {
         if (emul == null) {
             throw new IOException("Can't find " + resource);
         }
+        if (dependencies != null) {
+            dependencies.addIfMissing(resource);
+        }
         append("\n// resource from ").append(resource).append("\n");
         readResource(emul, this);
         append("\n");
@@ -287,7 +453,7 @@ abstract class VM extends ByteCodeToJavaScript {
     }
 
     private StringArray scripts = new StringArray();
-    private StringArray references = new StringArray();
+    private final ClassWorklist references = new ClassWorklist();
     
     @Override
     protected boolean requireReference(String cn) {
@@ -309,6 +475,115 @@ abstract class VM extends ByteCodeToJavaScript {
         return "vm." + className;
     }
 
+    @Override
+    final boolean typedArrays() {
+        return typedArrays;
+    }
+
+    final boolean directFields() {
+        return directFields;
+    }
+
+    final boolean inline() {
+        return inline;
+    }
+
+    @Override
+    final boolean hoistClasses() {
+        return hoistClasses;
+    }
+
+    @Override
+    final boolean structuredFlow() {
+        return structuredFlow;
+    }
+
+    @Override
+    final boolean isReachable(MethodData m) {
+        return reachable == null || reachable.isKept(m);
+    }
+
+    @Override
+    final MethodData inlined(String[] methodInfo, int invoke) throws IOException {
+        if (!inline) {
+            return null;
+        }
+        final ClassData referencedClass =
+                classDataCache.getClassData(methodInfo[0]);
+        if (referencedClass == null) {
+            return null;
+        }
+        final MethodData method =
+                classDataCache.findMethod(referencedClass,
+                                          methodInfo[1],
+                                          methodInfo[2]);
+        if (method == null || method.getCode() == null
+            || method.isConstructor()
+            || method.cls.isInterface()
+            || (method.access & (ByteCodeParser.ACC_NATIVE
+                | ByteCodeParser.ACC_ABSTRACT
+                | ByteCodeParser.ACC_SYNCHRONIZED)) != 0
+            || isExternalClass(method.cls.getClassName())
+            || method.cls.findAnnotationData(true) != null
+            || method.findAnnotationData(true) != null
+        ) {
+            return null;
+        }
+        switch (invoke) {
+            case ByteCodeParser.opc_invokestatic:
+                return method.isStatic() ? method : null;
+            case ByteCodeParser.opc_invokespecial:
+                return method.isStatic() ? null : method;
+            case ByteCodeParser.opc_invokevirtual:
+                if (method.isStatic()) {
+                    return null;
+                }
+                if ((method.access & (ByteCodeParser.ACC_FINAL
+                        | ByteCodeParser.ACC_PRIVATE)) != 0
+                    || (method.cls.getAccessFlags()
+                        & ByteCodeParser.ACC_FINAL) != 0
+                    || (referencedClass.getAccessFlags()
+                        & ByteCodeParser.ACC_FINAL) != 0
+                    || (hierarchy != null && !hierarchy.isOverridden(method))
+                ) {
+                    return method;
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    final String directField(String[] fieldInfoName) throws IOException {
+        if (!directFields) {
+            return null;
+        }
+        final FieldData field =
+                classDataCache.findField(fieldInfoName[0],
+                                         fieldInfoName[1],
+                                         fieldInfoName[2]);
+        if (field == null) {
+            return null;
+        }
+        if (field.isStatic()
+            && (field.access & ByteCodeParser.ACC_FINAL) != 0
+            && field.hasConstantValue()
+        ) {
+            // constants have no storage, only an accessor
+            return null;
+        }
+        final String className = field.cls.getClassName();
+        if (
+            "java/lang/Object".equals(className) ||
+            "java/lang/reflect/Array".equals(className) ||
+            isExternalClass(className)
+        ) {
+            return null;
+        }
+        return className;
+    }
+
     @Override
     protected String accessField(String object, String mangledName,
                                  String[] fieldInfoName) throws IOException {
@@ -361,21 +636,22 @@ abstract class VM extends ByteCodeToJavaScript {
 
     private String accessThroughInvoker(String object, String mangledName, int params) 
     throws IOException {
-        String def = "\n  invoker." + mangledName + " = function(target";
-        if (invokerMethods.indexOf(def) == -1) {
-            invokerMethods.append(def);
+        if (invokerNames.addIfMissing(mangledName)) {
+            StringBuilder def = new StringBuilder();
+            def.append("\n  invoker.").append(mangledName).append(" = function(target");
             for (int j = 0; j < params; j++) {
-                invokerMethods.append(", p").append(j);
+                def.append(", p").append(j);
             }
-            invokerMethods.append(") {\n    return target['").
+            def.append(") {\n    return target['").
                 append(mangledName).append("'](");
             for (int j = 0; j < params; j++) {
                 if (j > 0) {
-                    invokerMethods.append(",");
+                    def.append(",");
                 }
-                invokerMethods.append("p").append(j);
+                def.append("p").append(j);
             }
-            invokerMethods.append(");\n  };");
+            def.append(");\n  };");
+            invokerMethods.add(def.toString());
         }
         return "invoker." + mangledName + '(' + object + (params > 1 ? "," : "");
     }
@@ -452,9 +728,19 @@ abstract class VM extends ByteCodeToJavaScript {
     private static final class Standalone extends VM {
         private Standalone(Appendable out,
             Bck2Brwsr.Resources resources, 
-            StringArray explicitlyExported, StringArray asBinary
+            StringArray explicitlyExported, StringArray asBinary,
+            ClassCache classes
         ) {
-            super(out, resources, explicitlyExported, asBinary);
+            super(out, resources, explicitlyExported, asBinary, classes);
+        }
+
+        private Standalone(Standalone parent, Appendable out) {
+            super(parent, out);
+        }
+
+        @Override
+        protected VM fork(Appendable out) {
+            return new Standalone(this, out);
         }
 
         @Override
@@ -543,6 +829,7 @@ abstract class VM extends ByteCodeToJavaScript {
                 + "      else resources[n].push(arr);\n"
                 + "    }\n"
                 + "    var vm = fillInVMSkeleton({ 'registerResource' : registerResource });\n"
+                + "    if (global.bck2brwsr['lazyMethods'] === false) vm['lazyMethods'] = false;\n"
                 + "    function initVM() {\n"
                 + "      var clsArray = vm['java_lang_reflect_Array'];\n"
                 + "      if (clsArray) clsArray(false);\n"
@@ -700,13 +987,24 @@ abstract class VM extends ByteCodeToJavaScript {
 
         private Extension(Appendable out, Bck2Brwsr.Resources resources,
             String[] extClassesArray, StringArray explicitlyExported,
-            StringArray asBinary, StringArray classpath
+            StringArray asBinary, StringArray classpath, ClassCache classes
         ) throws IOException {
-            super(out, resources, explicitlyExported, asBinary);
+            super(out, resources, explicitlyExported, asBinary, classes);
             this.extensionClasses = StringArray.asList(extClassesArray);
             this.classpath = classpath;
         }
 
+        private Extension(Extension parent, Appendable out) {
+            super(parent, out);
+            this.extensionClasses = parent.extensionClasses;
+            this.classpath = parent.classpath;
+        }
+
+        @Override
+        protected VM fork(Appendable out) {
+            return new Extension(this, out);
+        }
+
         @Override
         protected void generatePrologue() throws IOException {
             append(
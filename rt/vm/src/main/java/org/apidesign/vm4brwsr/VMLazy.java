@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import org.apidesign.bck2brwsr.core.Exported;
 import org.apidesign.bck2brwsr.core.JavaScriptBody;
+import org.apidesign.vm4brwsr.ByteCodeParser.MethodData;
 
 /**
  *
@@ -63,39 +64,82 @@ final class VMLazy {
     private Object defineClass(byte[] arr, String name, boolean instance) throws IOException {
         StringBuilder out = new StringBuilder(65535);
         out.append("var vm = arguments[0];\n");
+        out.append("var lazy = arguments[2];\n");
         int prelude = out.length();
-        String initCode = new Gen(this, out).compile(new ByteArrayInputStream(arr));
+        Gen gen = new Gen(this, out, lazyMethods(vm));
+        String initCode = gen.compile(new ByteArrayInputStream(arr));
         String code = out.toString().toString();
         String under = name.replace('.', '_');
-        Object fn = applyCode(vm, under, code, instance);
+        Object fn = applyCode(vm, under, code, instance, gen);
         
         if (!initCode.isEmpty()) {
             out.setLength(prelude);
             out.append(initCode);
             code = out.toString().toString();
-            applyCode(vm, null, code, false);
+            applyCode(vm, null, code, false, null);
         }            
         
         return fn;
     }
 
-    @JavaScriptBody(args = {"vm", "name", "script", "instance" }, body =
+    /** Methods are translated on their first call unless the VM is
+     * created with <code>bck2brwsr.lazyMethods = false</code>, which
+     * helps to find out whether a failure is caused by the stubs.
+     */
+    @JavaScriptBody(args = {"vm"}, body = "return vm['lazyMethods'] !== false;")
+    private static native boolean lazyMethods(Object vm);
+
+    @JavaScriptBody(args = {"vm", "name", "script", "instance", "gen" }, body =
         "try {\n" +
-        "  new Function(script)(vm, name);\n" +
+        "  new Function(script)(vm, name, gen);\n" +
         "} catch (ex) {\n" +
         "  throw 'Cannot compile ' + name + ' ' + ex + ' line: ' + ex.lineNumber + ' script:\\n' + script;\n" +
         "}\n" +
         "return name != null ? vm[name](instance) : null;\n"
     )
-    private static native Object applyCode(Object vm, String name, String script, boolean instance);
+    private static native Object applyCode(Object vm, String name, String script, boolean instance, Object gen);
+
+    @JavaScriptBody(args = {"vm", "stub", "cls", "c", "script" }, body =
+        "var m;\n" +
+        "try {\n" +
+        "  m = new Function('vm', 'CLS', 'c', script)(vm, cls, c);\n" +
+        "} catch (ex) {\n" +
+        "  throw 'Cannot compile method ' + ex + ' line: ' + ex.lineNumber + ' script:\\n' + script;\n" +
+        "}\n" +
+        "m.access = stub.access;\n" +
+        "m.cls = stub.cls;\n" +
+        "if (stub.anno) m.anno = stub.anno;\n" +
+        "stub.impl = m;\n" +
+        "return m;\n"
+    )
+    private static native Object applyMethod(Object vm, Object stub, Object cls, Object c, String script);
     
     
     private static final class Gen extends ByteCodeToJavaScript {
         private final VMLazy lazy;
+        private final StringBuilder out;
+        private final boolean lazyMethods;
 
-        public Gen(VMLazy vm, Appendable out) {
+        public Gen(VMLazy vm, StringBuilder out, boolean lazyMethods) {
             super(out);
             this.lazy = vm;
+            this.out = out;
+            this.lazyMethods = lazyMethods;
+        }
+
+        @Override
+        String lazyMethod(MethodData m, int index) {
+            if (!lazyMethods) {
+                return null;
+            }
+            return "lazy.method__Ljava_lang_Object_2Ljava_lang_Object_2Ljava_lang_Object_2Ljava_lang_Object_2I(stub, CLS, c, " + index + ")";
+        }
+
+        @Exported
+        Object method(Object stub, Object cls, Object c, int index) throws IOException {
+            out.setLength(0);
+            compileMethod(index);
+            return applyMethod(lazy.vm, stub, cls, c, out.toString().toString());
         }
         
         @JavaScriptBody(args = {"n"},
@@ -121,7 +165,7 @@ final class VMLazy {
                 resourcePath = "/" + resourcePath;
             }
             String code = readCode(resourcePath);
-            applyCode(lazy.vm, null, code, false);
+            applyCode(lazy.vm, null, code, false, null);
         }
 
         private String readCode(String resourcePath) throws IOException {
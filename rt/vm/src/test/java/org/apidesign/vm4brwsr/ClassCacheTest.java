@@ -0,0 +1,69 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+
+public class ClassCacheTest {
+    private static final String[] CLASSES = {
+        "org/apidesign/vm4brwsr/StaticMethod",
+        "org/apidesign/vm4brwsr/Numbers",
+        "org/apidesign/vm4brwsr/Instance",
+        "org/apidesign/vm4brwsr/StringSample"
+    };
+
+    @Test public void parsedOnlyOnce() throws Exception {
+        String plain = generate(null);
+        ClassCache cache = ClassCache.create();
+        String first = generate(cache);
+        final long parsed = cache.misses();
+        assertTrue(parsed > CLASSES.length, "Some classes parsed: " + cache);
+        assertEquals((long) cache.size(), parsed, "All parsed classes kept: " + cache);
+        String second = generate(cache);
+
+        assertEquals(first, plain, "Same code with cache");
+        assertEquals(second, plain, "Same code from cache");
+        assertEquals(cache.misses(), parsed, "No new class parsed: " + cache);
+        assertTrue(cache.hits() >= parsed, "All classes found in cache: " + cache);
+    }
+
+    @Test public void limitedSize() throws Exception {
+        String plain = generate(null);
+        ClassCache cache = ClassCache.create(10);
+        String limited = generate(cache);
+        assertEquals(limited, plain, "Same code with limited cache");
+        assertEquals(cache.size(), 10, "Only ten classes kept: " + cache);
+        assertEquals(cache.evictions(), cache.misses() - 10, "The rest evicted: " + cache);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void limitMustBePositive() {
+        ClassCache.create(0);
+    }
+
+    private static String generate(ClassCache cache) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Bck2Brwsr.newCompiler().
+            resources(ClassCacheTest.class.getClassLoader(), true).
+            addRootClasses(CLASSES).
+            classCache(cache).
+            generate(sb);
+        return sb.toString();
+    }
+}
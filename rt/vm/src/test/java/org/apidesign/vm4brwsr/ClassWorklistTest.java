@@ -0,0 +1,98 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import java.io.IOException;
+import org.testng.annotations.Test;
+import static org.testng.Assert.*;
+
+public class ClassWorklistTest {
+    @Test public void mostRecentReferenceFirst() {
+        ClassWorklist list = new ClassWorklist();
+        list.add("a/A");
+        assertEquals(list.next(), "a/A");
+        list.processed("a/A", "");
+        assertTrue(list.addIfMissing("b/B"));
+        assertTrue(list.addIfMissing("c/C"));
+        assertFalse(list.addIfMissing("b/B"), "Already referenced");
+        assertEquals(list.next(), "c/C");
+        list.skipped("c/C");
+        assertEquals(list.next(), "b/B");
+        list.processed("b/B", null);
+        assertNull(list.next(), "All visited");
+    }
+
+    @Test public void initializeInReverseOrder() throws IOException {
+        ClassWorklist list = new ClassWorklist();
+        list.add("a/A");
+        list.processed(list.next(), "initA();");
+        list.addIfMissing("b/B");
+        list.processed(list.next(), "initB();");
+        list.addIfMissing("c/C");
+        list.skipped(list.next());
+
+        StringBuilder sb = new StringBuilder();
+        list.initialize(sb);
+        assertEquals(sb.toString(), "initB();\ninitA();\n");
+
+        list.add("a/A");
+        assertNull(list.next(), "A is already processed");
+        sb.setLength(0);
+        list.initialize(sb);
+        assertEquals(sb.toString(), "", "Each class initialized only once");
+    }
+
+    @Test public void thousandsOfClasses() {
+        final int cnt = 100000;
+        ClassWorklist list = walk(cnt);
+        assertEquals(list.size(), cnt);
+    }
+
+    @Test public void probesGrowLinearly() {
+        ClassWorklist small = walk(1000);
+        ClassWorklist large = walk(100000);
+        assertTrue(small.probes() < 10 * 1000,
+            "At most ten probes per class: " + small.probes());
+        assertTrue(large.probes() < 10 * 100000,
+            "At most ten probes per class: " + large.probes());
+        assertTrue(large.probes() / 100000.0 < 2 * small.probes() / 1000.0,
+            "Probes per class stay the same: " + small.probes() + " for 1000 and "
+            + large.probes() + " for 100000 classes"
+        );
+    }
+
+    private static ClassWorklist walk(final int cnt) {
+        ClassWorklist list = new ClassWorklist();
+        list.add("root/Root");
+        int visited = 0;
+        for (;;) {
+            String n = list.next();
+            if (n == null) {
+                break;
+            }
+            list.processed(n, "");
+            visited++;
+            if (visited < cnt) {
+                list.addIfMissing("pkg/C" + visited);
+                list.addIfMissing("pkg/C" + (visited / 2 + 1));
+            }
+        }
+        assertEquals(visited, cnt, "All classes visited");
+        return list;
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+/** Fields accessed directly as properties.
+ */
+public class DirectFields {
+    static int counter;
+    int value;
+    String name = "init";
+
+    private DirectFields() {
+    }
+
+    static class Sub extends DirectFields {
+        static Object shared = "shared";
+        int value;
+
+        Sub(int parent, int own) {
+            super.value = parent;
+            this.value = own;
+        }
+    }
+
+    public static int sum() {
+        DirectFields f = new DirectFields();
+        counter = 0;
+        for (int i = 0; i < 10; i++) {
+            f.value += i;
+            counter++;
+        }
+        return f.value + counter;
+    }
+
+    public static String shadowed() {
+        Sub s = new Sub(1, 2);
+        DirectFields d = s;
+        return d.value + ":" + s.value + ":" + d.name + ":" + Sub.shared;
+    }
+
+    public static String inheritedStatic() {
+        Sub.counter = 5;
+        return counter + ":" + Sub.counter;
+    }
+
+    public static boolean nullAccess() {
+        DirectFields f = null;
+        try {
+            return f.value == 0;
+        } catch (NullPointerException ex) {
+            return true;
+        }
+    }
+}
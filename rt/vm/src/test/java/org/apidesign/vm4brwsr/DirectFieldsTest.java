@@ -0,0 +1,80 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Fields accessed directly rather than via accessor functions.
+ */
+public class DirectFieldsTest {
+    @Test public void instanceAndStaticFields() throws Exception {
+        assertExec("Sum and counter", DirectFields.class, "sum__I", 
+            Double.valueOf(55)
+        );
+    }
+    
+    @Test public void shadowedFields() throws Exception {
+        assertExec("Each class has its own value", DirectFields.class, 
+            "shadowed__Ljava_lang_String_2", "1:2:init:shared"
+        );
+    }
+    
+    @Test public void staticFieldViaSubclass() throws Exception {
+        assertExec("Same storage", DirectFields.class, 
+            "inheritedStatic__Ljava_lang_String_2", "5:5"
+        );
+    }
+    
+    @Test public void nullTargetThrowsNPE() throws Exception {
+        assertExec("NPE", DirectFields.class, "nullAccess__Z", Double.valueOf(1));
+    }
+
+    private static final String DIRECT_READ = ".fld_org_apidesign_vm4brwsr_DirectFields_value";
+
+    @Test public void directAccessOnlyOnRequest() throws Exception {
+        StringBuilder accessors = new StringBuilder();
+        Bck2Brwsr.newCompiler().resources(new TestVM.EmulationResources()).
+            addRootClasses("org/apidesign/vm4brwsr/DirectFields").generate(accessors);
+        StringBuilder direct = new StringBuilder();
+        Bck2Brwsr.newCompiler().resources(new TestVM.EmulationResources()).
+            directFields(true).
+            addRootClasses("org/apidesign/vm4brwsr/DirectFields").generate(direct);
+        assertEquals(accessors.indexOf("lcA0" + DIRECT_READ), -1, "Accessors by default");
+        assertNotEquals(direct.indexOf("lcA0" + DIRECT_READ), -1, "Direct access requested");
+    }
+    
+    private static TestVM code;
+    
+    @BeforeClass 
+    public void compileTheCode() throws Exception {
+        code = TestVM.compileClass(null, null, Bck2Brwsr.newCompiler()
+            .resources(new TestVM.EmulationResources()).directFields(true),
+            "org/apidesign/vm4brwsr/DirectFields"
+        );
+    }
+    @AfterClass
+    public static void releaseTheCode() {
+        code = null;
+    }
+    private static void assertExec(String msg, Class clazz, String method, Object expRes, Object... args) throws Exception {
+        code.assertExec(msg, clazz, method, expRes, args);
+    }
+}
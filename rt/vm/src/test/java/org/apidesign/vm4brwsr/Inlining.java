@@ -0,0 +1,113 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+/** Calls to trivial methods.
+ */
+public class Inlining {
+    private final Point point;
+    private final String name;
+
+    private Inlining(Point point, String name) {
+        this.point = point;
+        this.name = name;
+    }
+
+    static final class Point {
+        static int created;
+        final int x;
+        final int y;
+
+        Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+            created++;
+        }
+
+        int getX() {
+            return x;
+        }
+
+        int getY() {
+            return y;
+        }
+
+        static int created() {
+            return created;
+        }
+
+        static int limit() {
+            return 1000;
+        }
+    }
+
+    static class Shape {
+        int size() {
+            return 1;
+        }
+    }
+
+    static class Square extends Shape {
+        @Override
+        int size() {
+            return 4;
+        }
+    }
+
+    private Point getPoint() {
+        return point;
+    }
+
+    final String getName() {
+        return name;
+    }
+
+    private int getPointX() {
+        return point.x;
+    }
+
+    public static int sum(int n) {
+        Point.created = 0;
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            Point p = new Point(i, n - i);
+            sum += p.getX() + p.getY();
+        }
+        return sum % Point.limit() + Point.created();
+    }
+
+    public static int chain(int x) {
+        Inlining in = new Inlining(new Point(x, 2), "in");
+        return in.getPoint().getX() + in.getPointX() + in.getName().length();
+    }
+
+    public static boolean nullReceiver() {
+        Inlining in = null;
+        try {
+            in.getName();
+            return false;
+        } catch (NullPointerException ex) {
+            return true;
+        }
+    }
+
+    public static int overridden(boolean square) {
+        Shape s = square ? new Square() : new Shape();
+        return s.size();
+    }
+}
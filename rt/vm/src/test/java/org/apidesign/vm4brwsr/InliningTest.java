@@ -0,0 +1,123 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Calls to trivial methods are replaced by their bodies.
+ */
+public class InliningTest {
+    @Test public void gettersInALoop() throws Exception {
+        assertExec("Sum of coordinates", Inlining.class, "sum__II",
+            Double.valueOf(Inlining.sum(100)), 100
+        );
+    }
+
+    @Test public void chainOfGetters() throws Exception {
+        assertExec("Chain", Inlining.class, "chain__II",
+            Double.valueOf(Inlining.chain(5)), 5
+        );
+    }
+
+    @Test public void nullReceiverThrows() throws Exception {
+        assertExec("NPE", Inlining.class, "nullReceiver__Z",
+            Double.valueOf(1)
+        );
+    }
+
+    @Test public void overriddenMethodIsCalled() throws Exception {
+        assertExec("Square", Inlining.class, "overridden__IZ",
+            Double.valueOf(Inlining.overridden(true)), true
+        );
+        assertExec("Shape", Inlining.class, "overridden__IZ",
+            Double.valueOf(Inlining.overridden(false)), false
+        );
+    }
+
+    @Test public void gettersAreNotCalled() {
+        String method = method("c.sum__II");
+        assertEquals(count(method, "getX__I"), 0, "Inlined:\n" + method);
+        assertEquals(count(method, "getY__I"), 0, "Inlined:\n" + method);
+        assertEquals(count(method, "limit__I"), 0, "Inlined:\n" + method);
+        assertEquals(count(method, "created__I"), 0, "Inlined:\n" + method);
+        assertEquals(count(method, ".fld_org_apidesign_vm4brwsr_Inlining$Point_x"), 1, "Field read:\n" + method);
+    }
+
+    @Test public void chainIsNotCalled() {
+        String method = method("c.chain__II");
+        assertEquals(count(method, "getPoint"), 0, "Inlined:\n" + method);
+        assertEquals(count(method, "getPointX__I"), 0, "Inlined:\n" + method);
+        assertEquals(count(method, "getName__"), 0, "Inlined:\n" + method);
+    }
+
+    @Test public void virtualCallRemains() {
+        String method = method("c.overridden__IZ");
+        assertEquals(count(method, "size__I"), 1, "Called:\n" + method);
+    }
+
+    @Test public void notInlinedByDefault() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        TestVM.compileClass(sb, "org/apidesign/vm4brwsr/Inlining");
+        String method = method(sb.toString(), "", "c.sum__II");
+        assertEquals(count(method, "getX__I"), 1, "Called:\n" + method);
+    }
+
+    private static String method(String name) {
+        return method(js, "", name);
+    }
+
+    private static String method(String s, String cls, String name) {
+        int beg = s.indexOf(name, s.indexOf(cls));
+        int end = s.indexOf(".access", beg);
+        assertTrue(beg > 0, "Found " + name);
+        assertTrue(beg < end, "Found end of " + name);
+        return s.substring(beg, end);
+    }
+
+    private static int count(String text, String what) {
+        int cnt = 0;
+        for (int at = text.indexOf(what); at >= 0; at = text.indexOf(what, at + 1)) {
+            cnt++;
+        }
+        return cnt;
+    }
+
+    private static TestVM code;
+    private static String js;
+
+    @BeforeClass
+    public void compileTheCode() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        code = TestVM.compileClass(sb, null, Bck2Brwsr.newCompiler()
+            .resources(new TestVM.EmulationResources()).inline(true).directFields(true).hoistClasses(true),
+            "org/apidesign/vm4brwsr/Inlining"
+        );
+        js = sb.toString();
+    }
+    @AfterClass
+    public static void releaseTheCode() {
+        code = null;
+        js = null;
+    }
+    private static void assertExec(String msg, Class clazz, String method, Object expRes, Object... args) throws Exception {
+        code.assertExec(msg, clazz, method, expRes, args);
+    }
+}
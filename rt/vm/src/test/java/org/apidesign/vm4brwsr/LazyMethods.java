@@ -0,0 +1,121 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+public class LazyMethods {
+    private final int[] values;
+
+    public LazyMethods(int n) {
+        values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = i * i;
+        }
+    }
+
+    public int total() {
+        int sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i];
+            if (sum > 1000) {
+                sum -= 1000;
+            }
+        }
+        return sum;
+    }
+
+    public static int sumTo(int n) {
+        int sum = 0;
+        for (int i = 1; i <= n; i++) {
+            sum += i;
+            if (sum > 1000) {
+                sum -= 1000;
+            }
+        }
+        return sum;
+    }
+
+    public static int sumTen() {
+        return sumTo(10);
+    }
+
+    public static int sumAll() {
+        return sumTo(10) + new LazyMethods(5).total();
+    }
+
+    public int odd() {
+        int cnt = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] % 2 == 1) {
+                cnt++;
+            }
+        }
+        return cnt;
+    }
+
+    public static int viaReflection() throws Exception {
+        LazyMethods lm = new LazyMethods(4);
+        Object res = LazyMethods.class.getMethod("odd").invoke(lm);
+        return (Integer) res;
+    }
+
+    public static int inheritedAfterPatch() {
+        int base = new Base().value();
+        Derived d = new Derived();
+        return base * 1000 + d.value() * 10 + d.count(3);
+    }
+
+    public static int inheritedBeforePatch() {
+        int derived = new Derived().count(4);
+        return derived * 1000 + new Base().count(4);
+    }
+
+    public static class Base {
+        public int count(int n) {
+            int sum = 0;
+            for (int i = 1; i <= n; i++) {
+                sum += i;
+            }
+            return sum;
+        }
+
+        public int value() {
+            return count(10);
+        }
+    }
+
+    public static class Eager {
+        public static int sumTo(int n) {
+            int sum = 0;
+            for (int i = 1; i <= n; i++) {
+                sum += i;
+            }
+            return sum;
+        }
+
+        public static int sumTen() {
+            return sumTo(10);
+        }
+    }
+
+    public static class Derived extends Base {
+        @Override
+        public int value() {
+            return super.value() + 1;
+        }
+    }
+}
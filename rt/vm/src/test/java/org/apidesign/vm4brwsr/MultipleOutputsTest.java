@@ -0,0 +1,58 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+
+public class MultipleOutputsTest {
+    private static final String[] CLASSES = {
+        "org/apidesign/vm4brwsr/StaticMethod",
+        "org/apidesign/vm4brwsr/Instance"
+    };
+
+    @Test public void debugAndMinifiedAtOnce() throws Exception {
+        Bck2Brwsr c = Bck2Brwsr.newCompiler().
+            resources(MultipleOutputsTest.class.getClassLoader(), true).
+            addClasses(CLASSES).
+            addExported("org/apidesign/vm4brwsr/").
+            library();
+
+        StringBuilder debug = new StringBuilder();
+        c.obfuscation(ObfuscationLevel.NONE).generate(debug);
+        StringBuilder minified = new StringBuilder();
+        c.obfuscation(ObfuscationLevel.FULL).generate(minified);
+
+        StringBuilder both0 = new StringBuilder();
+        StringBuilder both1 = new StringBuilder();
+        c.generate(
+            new Appendable[] { both0, both1 },
+            new ObfuscationLevel[] { ObfuscationLevel.NONE, ObfuscationLevel.FULL }
+        );
+        assertEquals(both0.toString(), debug.toString(), "Same debug code");
+        assertEquals(both1.toString(), minified.toString(), "Same minified code");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void levelForEachOutput() throws Exception {
+        Bck2Brwsr.newCompiler().generate(
+            new Appendable[] { new StringBuilder(), new StringBuilder() },
+            new ObfuscationLevel[] { ObfuscationLevel.NONE }
+        );
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+
+public class ParallelCompilationTest {
+    private static final String[] CLASSES = {
+        "org/apidesign/vm4brwsr/StaticMethod",
+        "org/apidesign/vm4brwsr/Numbers",
+        "org/apidesign/vm4brwsr/Instance",
+        "org/apidesign/vm4brwsr/Exceptions",
+        "org/apidesign/vm4brwsr/StringSample"
+    };
+
+    @Test public void sameCodeAsSerialCompilation() throws Exception {
+        String serial = generate(1);
+        String parallel = generate(4);
+        assertEquals(parallel, serial, "The generated code is the same");
+    }
+
+    @Test public void sameCodeForLibrary() throws Exception {
+        Bck2Brwsr c = Bck2Brwsr.newCompiler().
+            resources(ParallelCompilationTest.class.getClassLoader(), true).
+            addClasses(CLASSES).
+            addExported("org/apidesign/vm4brwsr/").
+            library();
+        StringBuilder serial = new StringBuilder();
+        c.generate(serial);
+        StringBuilder parallel = new StringBuilder();
+        c.parallelism(3).generate(parallel);
+        assertEquals(parallel.toString(), serial.toString(), "The same library");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void parallelismMustBePositive() {
+        Bck2Brwsr.newCompiler().parallelism(0);
+    }
+
+    private static String generate(int parallelism) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Bck2Brwsr.newCompiler().
+            resources(ParallelCompilationTest.class.getClassLoader(), true).
+            addRootClasses(CLASSES).
+            parallelism(parallelism).
+            generate(sb);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+/** Code calling static methods of other classes.
+ */
+public class StaticCalls {
+    private StaticCalls() {
+    }
+
+    static final class Counter {
+        static int calls;
+        final int value;
+
+        Counter(int value) {
+            this.value = value;
+        }
+
+        static int twice(int x) {
+            calls++;
+            return x * 2;
+        }
+
+        static int plus(int x, int y) {
+            calls++;
+            return x + y;
+        }
+    }
+
+    public static int calls(int n) {
+        Counter.calls = 0;
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum = Counter.plus(sum, Counter.twice(i)) % 100000;
+        }
+        return sum + Counter.calls;
+    }
+
+    public static int alternate(boolean flag) {
+        int r;
+        if (flag) {
+            r = Counter.twice(3);
+        } else {
+            r = Counter.plus(1, 2);
+        }
+        return r + Counter.twice(r);
+    }
+
+    public static int caught() {
+        try {
+            Counter.twice(1);
+            throw new IllegalStateException();
+        } catch (IllegalStateException ex) {
+            return Counter.twice(2) + Counter.twice(3);
+        }
+    }
+
+    public static int allocate(int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += new Counter(i).value % 7;
+        }
+        return sum;
+    }
+}
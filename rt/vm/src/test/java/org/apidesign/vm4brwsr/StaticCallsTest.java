@@ -0,0 +1,125 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** References to other classes are resolved once per method.
+ */
+public class StaticCallsTest {
+    private static final String COUNTER = "org_apidesign_vm4brwsr_StaticCalls$Counter";
+
+    @Test public void callsInALoop() throws Exception {
+        assertExec("Sum of calls", StaticCalls.class, "calls__II",
+            Double.valueOf(StaticCalls.calls(1000)), 1000
+        );
+    }
+
+    @Test public void resolvedOnBothBranches() throws Exception {
+        assertExec("Then branch", StaticCalls.class, "alternate__IZ",
+            Double.valueOf(StaticCalls.alternate(true)), true
+        );
+        assertExec("Else branch", StaticCalls.class, "alternate__IZ",
+            Double.valueOf(StaticCalls.alternate(false)), false
+        );
+    }
+
+    @Test public void handlerResolvesAgain() throws Exception {
+        assertExec("Caught", StaticCalls.class, "caught__I",
+            Double.valueOf(StaticCalls.caught())
+        );
+    }
+
+    @Test public void constructorsCallSuper() throws Exception {
+        assertExec("Allocated", StaticCalls.class, "allocate__II",
+            Double.valueOf(StaticCalls.allocate(100)), 100
+        );
+    }
+
+    @Test public void loopUsesLocalReference() {
+        String method = method("c.calls__II");
+        assertEquals(count(method, "var lrefs_" + COUNTER), 1, "Resolved once:\n" + method);
+        assertEquals(count(method, "(refs_" + COUNTER + " ||"), 0, "No checks in the loop:\n" + method);
+        assertEquals(count(method, "lrefs_" + COUNTER + "."), 4, "Local used:\n" + method);
+    }
+
+    @Test public void branchesResolveSeparately() {
+        String method = method("c.alternate__IZ");
+        assertEquals(count(method, "var lrefs_" + COUNTER), 2, "Each branch:\n" + method);
+        assertEquals(count(method, "(refs_" + COUNTER + " ||"), 0, "Join is resolved:\n" + method);
+    }
+
+    @Test public void noLocalReferencesByDefault() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Bck2Brwsr.newCompiler().resources(new TestVM.EmulationResources()).
+            addRootClasses("org/apidesign/vm4brwsr/StaticCalls").generate(sb);
+        assertEquals(count(sb.toString(), "var lrefs_" + COUNTER), 0, "Hoisting is off by default");
+        assertEquals(count(sb.toString(), "var refs_java_lang_Object = "), 0, "Superclass not bound by default");
+    }
+
+    @Test public void superclassIsBoundOnce() {
+        String method = method("function " + COUNTER + "()", "CLS.cons__VI");
+        assertEquals(count(method, "refs_java_lang_Object.constructor"), 1, "Super call:\n" + method);
+        assertEquals(count(method, "(refs_java_lang_Object ||"), 0, "No check:\n" + method);
+    }
+
+    private static String method(String name) {
+        return method("", name);
+    }
+
+    private static String method(String cls, String name) {
+        String s = js;
+        int beg = s.indexOf(name, s.indexOf(cls));
+        int end = s.indexOf(".access", beg);
+        assertTrue(beg > 0, "Found " + name);
+        assertTrue(beg < end, "Found end of " + name);
+        return s.substring(beg, end);
+    }
+
+    private static int count(String text, String what) {
+        int cnt = 0;
+        for (int at = text.indexOf(what); at >= 0; at = text.indexOf(what, at + 1)) {
+            cnt++;
+        }
+        return cnt;
+    }
+
+    private static TestVM code;
+    private static String js;
+
+    @BeforeClass
+    public void compileTheCode() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        code = TestVM.compileClass(sb, null, Bck2Brwsr.newCompiler()
+            .resources(new TestVM.EmulationResources()).hoistClasses(true),
+            "org/apidesign/vm4brwsr/StaticCalls"
+        );
+        js = sb.toString();
+    }
+    @AfterClass
+    public static void releaseTheCode() {
+        code = null;
+        js = null;
+    }
+    private static void assertExec(String msg, Class clazz, String method, Object expRes, Object... args) throws Exception {
+        code.assertExec(msg, clazz, method, expRes, args);
+    }
+}
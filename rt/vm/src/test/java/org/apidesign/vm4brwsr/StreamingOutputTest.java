@@ -0,0 +1,144 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+
+public class StreamingOutputTest {
+    private static final String[] CLASSES = {
+        "org/apidesign/vm4brwsr/StaticMethod",
+        "org/apidesign/vm4brwsr/Numbers",
+        "org/apidesign/vm4brwsr/Instance",
+        "org/apidesign/vm4brwsr/StringSample"
+    };
+
+    @Test public void writtenWhileTranslating() throws Exception {
+        Sink sink = new Sink();
+        Watch watch = new Watch(sink);
+        Bck2Brwsr.newCompiler().
+            resources(watch).
+            addRootClasses(CLASSES).
+            generate(sink);
+        assertOnlyEpilogueLeft(sink, watch);
+    }
+
+    @Test public void invokersWrittenWithTheirClass() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Bck2Brwsr.newCompiler().
+            resources(StreamingOutputTest.class.getClassLoader(), true).
+            addRootClasses(CLASSES).
+            generate(sb);
+        int firstInvoker = sb.indexOf("\n  invoker.");
+        int lastClass = sb.lastIndexOf("\nvm.");
+        assertTrue(firstInvoker >= 0, "Some invokers used");
+        assertTrue(firstInvoker < lastClass,
+            "Invokers aren't postponed till the end: " + firstInvoker + " < " + lastClass
+        );
+    }
+
+    @Test public void writtenWhileTranslatingInParallel() throws Exception {
+        Sink sink = new Sink();
+        Watch watch = new Watch(sink);
+        Bck2Brwsr.newCompiler().
+            resources(watch).
+            addRootClasses(CLASSES).
+            parallelism(3).
+            generate(sink);
+        assertTrue(watch.loaded > CLASSES.length, "Classes loaded: " + watch.loaded);
+        assertTrue(sink.length > 0, "Something generated");
+    }
+
+    @Test public void plainOutputIsNotBuffered() throws Exception {
+        Sink sink = new Sink();
+        Watch watch = new Watch(sink);
+        Bck2Brwsr.newCompiler().
+            resources(watch).
+            addRootClasses(CLASSES).
+            generate(
+                new Appendable[] { sink },
+                new ObfuscationLevel[] { ObfuscationLevel.NONE }
+            );
+        assertOnlyEpilogueLeft(sink, watch);
+    }
+
+    private static void assertOnlyEpilogueLeft(Sink sink, Watch watch) {
+        assertTrue(watch.loaded > CLASSES.length, "Classes loaded: " + watch.loaded);
+        final int tail = sink.length - watch.lengthAtLastLoad;
+        assertTrue(tail < sink.length / 10,
+            "Most of the code written before the last class is loaded: " + tail
+            + " out of " + sink.length
+        );
+        assertTrue(sink.longestChunk < sink.length / 10,
+            "No big chunks buffered: " + sink.longestChunk
+        );
+    }
+
+    /** Counts the output without keeping it. */
+    private static final class Sink implements Appendable {
+        int length;
+        int longestChunk;
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            return chunk(csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            return chunk(end - start);
+        }
+
+        @Override
+        public Appendable append(char c) {
+            return chunk(1);
+        }
+
+        private Appendable chunk(int len) {
+            length += len;
+            if (len > longestChunk) {
+                longestChunk = len;
+            }
+            return this;
+        }
+    }
+
+    /** Remembers the size of the output when a class is loaded. */
+    private static final class Watch implements Bck2Brwsr.Resources {
+        private final Bck2Brwsr.Resources delegate;
+        private final Sink sink;
+        int loaded;
+        int lengthAtLastLoad;
+
+        Watch(Sink sink) {
+            this.sink = sink;
+            this.delegate = new LdrRsrcs(StreamingOutputTest.class.getClassLoader(), true);
+        }
+
+        @Override
+        public synchronized InputStream get(String resource) throws IOException {
+            if (resource.endsWith(".class")) {
+                loaded++;
+                lengthAtLastLoad = sink.length;
+            }
+            return delegate.get(resource);
+        }
+    }
+}
@@ -26,4 +26,35 @@ public class StringArrayTest {
         StringArray three = empty.addAndNew("One").addAndNew("Two").addAndNew("Three");
         assertEquals(three.toArray().length, 3);
     }
+
+    @Test public void growAndFind() {
+        StringArray arr = new StringArray();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(arr.addIfMissing("s" + i), "Added " + i);
+        }
+        assertFalse(arr.addIfMissing("s500"), "Already there");
+        assertEquals(arr.size(), 1000);
+        assertEquals(arr.indexOf("s0"), 0);
+        assertEquals(arr.indexOf("s999"), 999);
+        assertEquals(arr.indexOf("s1000"), -1);
+        assertEquals(arr.toArray().length, 1000);
+
+        arr.remove("s0");
+        assertEquals(arr.indexOf("s1"), 0, "Shifted after removal");
+        assertFalse(arr.contains("s0"), "No longer there");
+        arr.add("s0");
+        assertEquals(arr.indexOf("s0"), 999, "Appended at the end");
+    }
+
+    @Test public void firstOccurrenceWins() {
+        StringArray arr = new StringArray();
+        for (int i = 0; i < 20; i++) {
+            arr.add("x" + (i % 10));
+        }
+        assertEquals(arr.indexOf("x3"), 3);
+        arr.set(3, "y");
+        assertEquals(arr.indexOf("x3"), 13, "Index updated after set");
+        assertEquals(arr.getAndClear(13, true), "x3");
+        assertEquals(arr.indexOf("x3"), -1, "Cleared");
+    }
 }
@@ -0,0 +1,107 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+/** Methods with various shapes of control flow.
+ */
+public class StructuredFlow {
+    public static int labeledLoops(int n) {
+        int sum = 0;
+        outer: for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (j > i) {
+                    continue outer;
+                }
+                if (i * j > 20) {
+                    break outer;
+                }
+                sum += i * j;
+            }
+        }
+        return sum;
+    }
+
+    public static String switches(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            switch (i % 4) {
+                case 0: sb.append('a'); break;
+                case 1: sb.append('b');
+                case 2: sb.append('c'); continue;
+                default: sb.append('d');
+            }
+            switch (i * 100) {
+                case 100: sb.append('X'); break;
+                case 500: sb.append('Y'); break;
+                default:
+            }
+        }
+        return sb.toString();
+    }
+
+    public static int doWhile(int n) {
+        int cnt = 0;
+        do {
+            cnt++;
+            n /= 2;
+        } while (n > 0);
+        return cnt;
+    }
+
+    public static String exceptionsInLoop(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            try {
+                if (i % 3 == 0) {
+                    throw new IllegalStateException("" + i);
+                }
+                if (i == 4) {
+                    continue;
+                }
+                sb.append(i);
+            } catch (IllegalStateException ex) {
+                sb.append('E').append(ex.getMessage());
+                if (i > 5) {
+                    break;
+                }
+            } finally {
+                sb.append(',');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final Object LOCK = new Object();
+    public static int synchronizedLoop(int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            synchronized (LOCK) {
+                if (i % 2 == 0) {
+                    continue;
+                }
+                sum += i;
+            }
+        }
+        return sum;
+    }
+
+    public static int conditions(int a, int b) {
+        int r = a > b && b > 0 ? a - b : (a < 0 || b < 0 ? -1 : a + b);
+        return r * (a == b ? 2 : 1);
+    }
+}
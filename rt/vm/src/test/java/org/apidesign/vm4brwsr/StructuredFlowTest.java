@@ -0,0 +1,108 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Control flow expressed by JavaScript blocks and loops.
+ */
+public class StructuredFlowTest {
+    @Test public void labeledLoops() throws Exception {
+        assertExec("Sum", StructuredFlow.class, "labeledLoops__II", 
+            Double.valueOf(StructuredFlow.labeledLoops(10)), 10
+        );
+    }
+
+    @Test public void switches() throws Exception {
+        assertExec("Switches", StructuredFlow.class, "switches__Ljava_lang_String_2I", 
+            StructuredFlow.switches(10), 10
+        );
+    }
+
+    @Test public void doWhile() throws Exception {
+        assertExec("Halving", StructuredFlow.class, "doWhile__II", 
+            Double.valueOf(StructuredFlow.doWhile(1000)), 1000
+        );
+    }
+
+    @Test public void exceptionsInLoop() throws Exception {
+        assertExec("Exceptions", StructuredFlow.class, "exceptionsInLoop__Ljava_lang_String_2I", 
+            StructuredFlow.exceptionsInLoop(10), 10
+        );
+    }
+
+    @Test public void synchronizedLoop() throws Exception {
+        assertExec("Odd numbers", StructuredFlow.class, "synchronizedLoop__II", 
+            Double.valueOf(StructuredFlow.synchronizedLoop(10)), 10
+        );
+    }
+
+    @Test public void conditions() throws Exception {
+        assertExec("Conditions", StructuredFlow.class, "conditions__III", 
+            Double.valueOf(StructuredFlow.conditions(7, 3)), 7, 3
+        );
+        assertExec("Conditions", StructuredFlow.class, "conditions__III", 
+            Double.valueOf(StructuredFlow.conditions(-7, 3)), -7, 3
+        );
+        assertExec("Conditions", StructuredFlow.class, "conditions__III", 
+            Double.valueOf(StructuredFlow.conditions(3, 3)), 3, 3
+        );
+    }
+
+    @Test public void noStateMachine() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Bck2Brwsr.newCompiler().structuredFlow(true).
+            resources(StructuredFlowTest.class.getClassLoader(), true).
+            addClasses("org/apidesign/vm4brwsr/StructuredFlow").
+            addExported("org/apidesign/vm4brwsr/").
+            library().generate(sb);
+        assertEquals(sb.indexOf("var gt"), -1, "No dispatch variable:\n" + sb);
+        assertNotEquals(sb.indexOf("continue X_"), -1, "Loops are used:\n" + sb);
+    }
+
+    @Test public void stateMachineByDefault() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Bck2Brwsr.newCompiler().
+            resources(StructuredFlowTest.class.getClassLoader(), true).
+            addClasses("org/apidesign/vm4brwsr/StructuredFlow").
+            addExported("org/apidesign/vm4brwsr/").
+            library().generate(sb);
+        assertNotEquals(sb.indexOf("var gt"), -1, "Dispatch variable:\n" + sb);
+        assertEquals(sb.indexOf("break B_"), -1, "No blocks:\n" + sb);
+    }
+    
+    private static TestVM code;
+    
+    @BeforeClass 
+    public void compileTheCode() throws Exception {
+        code = TestVM.compileClass(null, null, Bck2Brwsr.newCompiler()
+            .resources(new TestVM.EmulationResources()).structuredFlow(true),
+            "org/apidesign/vm4brwsr/StructuredFlow"
+        );
+    }
+    @AfterClass
+    public static void releaseTheCode() {
+        code = null;
+    }
+    private static void assertExec(String msg, Class clazz, String method, Object expRes, Object... args) throws Exception {
+        code.assertExec(msg, clazz, method, expRes, args);
+    }
+}
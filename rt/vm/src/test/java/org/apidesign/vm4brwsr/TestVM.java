@@ -132,11 +132,19 @@ public final class TestVM {
         ScriptEngine[] eng, 
         Bck2Brwsr.Resources resources, 
         String... names
+    ) throws ScriptException, IOException {
+        return compileClass(sb, eng, Bck2Brwsr.newCompiler().resources(resources), names);
+    }
+    static TestVM compileClass(
+        StringBuilder sb, 
+        ScriptEngine[] eng, 
+        Bck2Brwsr config, 
+        String... names
     ) throws ScriptException, IOException {
         if (sb == null) {
             sb = new StringBuilder();
         }
-        Bck2Brwsr.generate(sb, resources, names);
+        config.addRootClasses(names).generate(sb);
         ScriptEngineManager sem = new ScriptEngineManager();
         ScriptEngine js = sem.getEngineByExtension("js");
         if (eng != null) {
@@ -279,7 +287,7 @@ public final class TestVM {
         return codeSeq;
     }
     
-    private static class EmulationResources implements Bck2Brwsr.Resources {
+    static class EmulationResources implements Bck2Brwsr.Resources {
         @Override
         public InputStream get(String name) throws IOException {
             if ("java/net/URI.class".equals(name)) {
@@ -0,0 +1,169 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TranslationCacheTest {
+    private static final String[] CLASSES = {
+        "org/apidesign/vm4brwsr/StaticMethod",
+        "org/apidesign/vm4brwsr/Numbers",
+        "org/apidesign/vm4brwsr/Instance",
+        "org/apidesign/vm4brwsr/Resources",
+        "org/apidesign/vm4brwsr/StringSample"
+    };
+    private File dir;
+
+    @BeforeMethod public void createDir() throws IOException {
+        dir = File.createTempFile("translations", ".dir");
+        dir.delete();
+    }
+
+    @AfterMethod public void deleteDir() {
+        File[] arr = dir.listFiles();
+        if (arr != null) {
+            for (File f : arr) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test public void sameCodeFromCache() throws Exception {
+        final Bck2Brwsr.Resources res = new Res(null, null);
+        String plain = generate(res, null, 1);
+        String first = generate(res, dir, 1);
+        assertTrue(dir.list().length > CLASSES.length, "Translations stored: " + dir.list().length);
+        String second = generate(res, dir, 1);
+        String parallel = generate(res, dir, 3);
+
+        assertEquals(first, plain, "Caching doesn't change the code");
+        assertEquals(second, plain, "Cached code is the same");
+        assertEquals(parallel, plain, "Cached code is the same in parallel mode");
+    }
+
+    @Test public void entriesReused() throws Exception {
+        final Bck2Brwsr.Resources res = new Res(null, null);
+        generate(res, dir, 1);
+        String[] first = dir.list();
+        generate(res, dir, 1);
+        String[] second = dir.list();
+        Arrays.sort(first);
+        Arrays.sort(second);
+        assertEquals(second, first, "No new entries created");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void cacheAndInlining() throws Exception {
+        Bck2Brwsr.newCompiler().
+            resources(new Res(null, null)).
+            addRootClasses(CLASSES).
+            cache(dir).
+            inline(true).
+            generate(new StringBuilder());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void cacheAndTreeShaking() throws Exception {
+        Bck2Brwsr.newCompiler().
+            resources(new Res(null, null)).
+            addRootClasses(CLASSES).
+            cache(dir).
+            treeShaking(true).
+            generate(new StringBuilder());
+    }
+
+    @Test public void sameLibraryFromCache() throws Exception {
+        Bck2Brwsr c = Bck2Brwsr.newCompiler().
+            resources(TranslationCacheTest.class.getClassLoader(), true).
+            addClasses(CLASSES).
+            addExported("org/apidesign/vm4brwsr/").
+            library();
+        StringBuilder plain = new StringBuilder();
+        c.generate(plain);
+        StringBuilder first = new StringBuilder();
+        c.cache(dir).generate(first);
+        StringBuilder second = new StringBuilder();
+        c.cache(dir).generate(second);
+        assertEquals(first.toString(), plain.toString(), "The same library");
+        assertEquals(second.toString(), plain.toString(), "The same library from cache");
+    }
+
+    @Test public void changedDependencyTranslatedAgain() throws Exception {
+        generate(new Res(null, null), dir, 1);
+
+        final Bck2Brwsr.Resources without = new Res("org/apidesign/vm4brwsr/Instance.class", null);
+        String plain = generate(without, null, 1);
+        String cached = generate(without, dir, 1);
+        assertEquals(cached, plain, "Missing class is reflected");
+    }
+
+    @Test public void changedResourceTranslatedAgain() throws Exception {
+        generate(new Res(null, null), dir, 1);
+
+        final Bck2Brwsr.Resources changed = new Res(
+            "org/apidesign/vm4brwsr/obj.js", "var obj = 'changed';"
+        );
+        String plain = generate(changed, null, 1);
+        String cached = generate(changed, dir, 1);
+        assertTrue(plain.contains("'changed'"), "Uses the changed resource");
+        assertEquals(cached, plain, "Changed resource is reflected");
+    }
+
+    private static String generate(
+        Bck2Brwsr.Resources res, File cache, int parallelism
+    ) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Bck2Brwsr.newCompiler().
+            resources(res).
+            addRootClasses(CLASSES).
+            parallelism(parallelism).
+            cache(cache).
+            generate(sb);
+        return sb.toString();
+    }
+
+    private static final class Res implements Bck2Brwsr.Resources {
+        private final String replace;
+        private final String content;
+        private final Bck2Brwsr.Resources delegate;
+
+        Res(String replace, String content) {
+            this.replace = replace;
+            this.content = content;
+            this.delegate = new LdrRsrcs(TranslationCacheTest.class.getClassLoader(), true);
+        }
+
+        @Override
+        public InputStream get(String resource) throws IOException {
+            if (resource.equals(replace)) {
+                return content == null ? null :
+                    new ByteArrayInputStream(content.getBytes("UTF-8"));
+            }
+            return delegate.get(resource);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import org.apidesign.bck2brwsr.core.JavaScriptBody;
+
+/** Classes with methods nobody calls.
+ */
+public class TreeShaking {
+    private TreeShaking() {
+    }
+
+    interface Shape {
+        int area();
+    }
+
+    static final class Square implements Shape {
+        final int side;
+
+        Square(int side) {
+            this.side = side;
+        }
+
+        @Override
+        public int area() {
+            return side * side;
+        }
+
+        int perimeter() {
+            return 4 * side;
+        }
+
+        int fromJs() {
+            return side + 1;
+        }
+    }
+
+    static final class Helper {
+        static int used(int x) {
+            return x + 1;
+        }
+
+        static int unused() {
+            return new Unreached().hashCode();
+        }
+    }
+
+    static final class Reflected {
+        public static int viaReflection() {
+            return 7;
+        }
+
+        public static int another() {
+            return 8;
+        }
+    }
+
+    public static final class Created {
+        public Created() {
+        }
+
+        int notCalled() {
+            return 9;
+        }
+
+        @Override
+        public String toString() {
+            return "Created";
+        }
+    }
+
+    static final class Unreached {
+    }
+
+    @JavaScriptBody(args = "s", body = "return s.fromJs__I();")
+    private static native int viaJs(Object s);
+
+    public static int reflective() throws Exception {
+        return (Integer) Reflected.class.getMethod("viaReflection").invoke(null);
+    }
+
+    public static String created() throws Exception {
+        return Class.forName("org.apidesign.vm4brwsr.TreeShaking$Created").newInstance().toString();
+    }
+
+    public static int compute(int n) {
+        Shape s = new Square(n);
+        return Helper.used(s.area()) + viaJs(s);
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Methods that cannot be called are not generated.
+ */
+public class TreeShakingTest {
+    private static final String SQUARE = "org/apidesign/vm4brwsr/TreeShaking$Square";
+    private static final String HELPER = "org/apidesign/vm4brwsr/TreeShaking$Helper";
+    private static final String REFLECTED = "org/apidesign/vm4brwsr/TreeShaking$Reflected";
+    private static final String CREATED = "org/apidesign/vm4brwsr/TreeShaking$Created";
+
+    @Test public void computesTheSame() throws Exception {
+        assertExec("Area plus one plus side plus one", TreeShaking.class,
+            "compute__II", Double.valueOf(14), 3
+        );
+    }
+
+    @Test public void uncalledMethodsAreRemoved() {
+        assertFalse(js.contains("perimeter__I"), "No perimeter:\n" + js);
+        assertFalse(js.contains("unused__I"), "No unused:\n" + js);
+        assertTrue(removed.contains(SQUARE + ".perimeter()I\n"), removed);
+        assertTrue(removed.contains(HELPER + ".unused()I\n"), removed);
+    }
+
+    @Test public void calledMethodsAreKept() {
+        assertFalse(removed.contains(SQUARE + ".area()I"), removed);
+        assertFalse(removed.contains(HELPER + ".used(I)I"), removed);
+        assertFalse(removed.contains(SQUARE + ".<init>(I)V"), removed);
+    }
+
+    @Test public void methodsCalledFromJavaScriptAreKept() {
+        assertFalse(removed.contains(SQUARE + ".fromJs()I"), removed);
+    }
+
+    @Test public void methodsFoundByReflectionAreKept() throws Exception {
+        assertFalse(removed.contains(REFLECTED + ".viaReflection()I"), removed);
+        assertExec("Called by name", TreeShaking.class,
+            "reflective__I", Double.valueOf(TreeShaking.reflective())
+        );
+    }
+
+    @Test public void allMethodsOfReflectedClassAreKept() {
+        assertFalse(removed.contains(REFLECTED + ".another()I"), removed);
+    }
+
+    @Test public void classesLoadedByNameAreKept() {
+        assertFalse(removed.contains(CREATED + ".notCalled()I"), removed);
+    }
+
+    @Test public void nothingRemovedWhenClassIsMissing() throws Exception {
+        StringBuilder report = new StringBuilder();
+        Bck2Brwsr.newCompiler().resources(new TestVM.EmulationResources() {
+            @Override
+            public InputStream get(String name) throws IOException {
+                if ((SQUARE + ".class").equals(name)) {
+                    return null;
+                }
+                return super.get(name);
+            }
+        }).treeShaking(report).addRootClasses(
+            "org/apidesign/vm4brwsr/TreeShaking"
+        ).generate(new StringBuilder());
+        assertEquals(report.toString(), "", "Nothing removed");
+    }
+
+    @Test public void classesOfRemovedMethodsAreNotGenerated() {
+        assertFalse(js.contains("TreeShaking$Unreached = "), "No Unreached class:\n" + js);
+    }
+
+    @Test public void allMethodsByDefault() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        TestVM.compileClass(sb, "org/apidesign/vm4brwsr/TreeShaking");
+        assertTrue(sb.toString().contains("perimeter__I"), "Has perimeter");
+    }
+
+    private static TestVM code;
+    private static String js;
+    private static String removed;
+
+    @BeforeClass
+    public void compileTheCode() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        StringBuilder report = new StringBuilder();
+        code = TestVM.compileClass(sb, null, Bck2Brwsr.newCompiler()
+            .resources(new TestVM.EmulationResources()).treeShaking(report),
+            "org/apidesign/vm4brwsr/TreeShaking"
+        );
+        js = sb.toString();
+        removed = report.toString();
+    }
+    @AfterClass
+    public static void releaseTheCode() {
+        code = null;
+        js = null;
+        removed = null;
+    }
+    private static void assertExec(String msg, Class clazz, String method, Object expRes, Object... args) throws Exception {
+        code.assertExec(msg, clazz, method, expRes, args);
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import org.apidesign.bck2brwsr.core.JavaScriptBody;
+import org.apidesign.bck2brwsr.emul.lang.System;
+
+public class TypedArrays {
+    private TypedArrays() {
+    }
+    
+    @JavaScriptBody(args = { "arr" }, body = "return typeof arr.subarray === 'function';")
+    private static boolean isTyped(Object arr) {
+        return true;
+    }
+    
+    private static int typed(Object arr) {
+        return isTyped(arr) ? 1 : 0;
+    }
+    
+    public static int countTyped() {
+        return typed(new byte[1]) + typed(new short[1]) + typed(new char[1])
+            + typed(new int[1]) + typed(new float[1]) + typed(new double[1])
+            + typed(new boolean[1]) + typed(new long[1]) + typed(new Object[1]);
+    }
+    
+    public static double multiply() {
+        double[][] a = new double[3][3];
+        double[][] b = new double[3][3];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                a[i][j] = i + j;
+                b[i][j] = i == j ? 2 : 0;
+            }
+        }
+        double[][] c = new double[3][3];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                for (int k = 0; k < 3; k++) {
+                    c[i][j] += a[i][k] * b[k][j];
+                }
+            }
+        }
+        if (!isTyped(c[2])) {
+            return -1;
+        }
+        double sum = 0;
+        for (double[] row : c) {
+            for (double v : row) {
+                sum += v;
+            }
+        }
+        return sum;
+    }
+    
+    public static String cloneTyped() {
+        int[] arr = { 1, 2, 3 };
+        int[] copy = arr.clone();
+        copy[0] = 10;
+        return copy.getClass().getName() + ":" + isTyped(copy) + ":" + arr[0] + copy[0];
+    }
+    
+    public static int copy() {
+        int[] arr = { 1, 2, 3, 4, 5 };
+        int[] to = new int[7];
+        System.arraycopy(arr, 1, to, 2, 3);
+        System.arraycopy(to, 2, to, 3, 3);
+        System.arraycopy(arr, 0, to, 6, 1);
+        int sum = 0;
+        for (int i = 0; i < to.length; i++) {
+            sum = sum * 10 + to[i];
+        }
+        return sum;
+    }
+    
+    public static String chars() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        char[] arr = "Hello World!".toCharArray();
+        char[] part = new char[5];
+        "Hello World!".getChars(6, 11, part, 0);
+        return sb.toString().substring(24, 28) + new String(arr) + new String(part, 1, 3);
+    }
+    
+    public static int bytes() {
+        byte[] arr = new byte[2];
+        arr[0] = (byte) 200;
+        arr[1] = (byte) -1;
+        short[] shrt = { (short) 40000 };
+        return arr[0] + arr[1] + shrt[0];
+    }
+    
+    public static String reflection() {
+        Object arr = java.lang.reflect.Array.newInstance(int.class, 3);
+        int[] typed = new int[3];
+        java.lang.reflect.Array.setInt(typed, 1, 42);
+        return java.lang.reflect.Array.getLength(typed) 
+            + ":" + java.lang.reflect.Array.getInt(typed, 1)
+            + ":" + java.lang.reflect.Array.get(typed, 1)
+            + ":" + (typed instanceof int[])
+            + ":" + arr.getClass().getName();
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Back 2 Browser Bytecode Translator
+ * Copyright (C) 2012-2015 Jaroslav Tulach <jaroslav.tulach@apidesign.org>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 2 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. Look for COPYING file in the top folder.
+ * If not, see http://opensource.org/licenses/GPL-2.0.
+ */
+package org.apidesign.vm4brwsr;
+
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Primitive arrays backed by JavaScript typed arrays.
+ */
+public class TypedArraysTest {
+    @Test public void numericArraysAreTyped() throws Exception {
+        assertExec("Six typed arrays", TypedArrays.class, "countTyped__I", 
+            Double.valueOf(6)
+        );
+    }
+    
+    @Test public void multiplyMatrix() throws Exception {
+        assertExec("Multiplied", TypedArrays.class, "multiply__D", 
+            Double.valueOf(36)
+        );
+    }
+    
+    @Test public void cloneRemainsTyped() throws Exception {
+        assertExec("Cloned", TypedArrays.class, "cloneTyped__Ljava_lang_String_2", 
+            "[I:true:110"
+        );
+    }
+    
+    @Test public void arrayCopy() throws Exception {
+        assertExec("Copied", TypedArrays.class, "copy__I", 
+            Double.valueOf(TypedArrays.copy())
+        );
+    }
+    
+    @Test public void charArraysAndStrings() throws Exception {
+        assertExec("Strings", TypedArrays.class, "chars__Ljava_lang_String_2", 
+            TypedArrays.chars()
+        );
+    }
+    
+    @Test public void valuesAreTruncated() throws Exception {
+        assertExec("Overflow", TypedArrays.class, "bytes__I", 
+            Double.valueOf(TypedArrays.bytes())
+        );
+    }
+    
+    @Test public void reflectionOnTypedArrays() throws Exception {
+        assertExec("Reflection", TypedArrays.class, "reflection__Ljava_lang_String_2", 
+            "3:42:42:true:[I"
+        );
+    }
+    
+    @Test public void operationsOnArrays() throws Exception {
+        assertExec("The sum is 105", Array.class, "sum__D", 
+            Double.valueOf(105)
+        );
+        assertExec("CheckTheSum on clone", Array.class, "simple__IZ", 
+            Double.valueOf(15), true
+        );
+        assertExec("Is 2d access working OK?", Array.class, "sumTable__I", 
+            Array.sumTable()
+        );
+        assertExec("Returns 'a'", Array.class, "copyArray__C", 
+            Double.valueOf('a')
+        );
+    }
+
+    private static final String TYPED_INT_ARRAY = 
+        "Array.prototype['newTypedArray__Ljava_lang_Object_2Ljava_lang_String_2I']('[I'";
+
+    @Test public void plainArraysByDefault() throws Exception {
+        StringBuilder plain = new StringBuilder();
+        Bck2Brwsr.newCompiler().resources(new TestVM.EmulationResources()).
+            addRootClasses("org/apidesign/vm4brwsr/Array").generate(plain);
+        StringBuilder typed = new StringBuilder();
+        Bck2Brwsr.newCompiler().resources(new TestVM.EmulationResources()).
+            typedArrays(true).
+            addRootClasses("org/apidesign/vm4brwsr/Array").generate(typed);
+        assertEquals(plain.indexOf(TYPED_INT_ARRAY), -1, "No typed arrays by default");
+        assertNotEquals(typed.indexOf(TYPED_INT_ARRAY), -1, "Typed arrays requested");
+    }
+    
+    private static TestVM code;
+    
+    @BeforeClass 
+    public void compileTheCode() throws Exception {
+        code = TestVM.compileClass(null, null, 
+            Bck2Brwsr.newCompiler().resources(new TestVM.EmulationResources()).typedArrays(true),
+            "org/apidesign/vm4brwsr/TypedArrays", "org/apidesign/vm4brwsr/Array"
+        );
+    }
+    @AfterClass
+    public static void releaseTheCode() {
+        code = null;
+    }
+    private static void assertExec(String msg, Class clazz, String method, Object expRes, Object... args) throws Exception {
+        code.assertExec(msg, clazz, method, expRes, args);
+    }
+}
@@ -42,6 +42,34 @@ public class VMLazyTest {
         sb.append("\n  return c[method]();");
         sb.append("\n}");
         
+        sb.append("\nfunction lazy(clazz, method, lazyMethod) {");
+        sb.append("\n  if (!data.bck2brwsr) data.bck2brwsr = bck2brwsr(function(name) { return loader.get(name); });");
+        sb.append("\n  var c = data.bck2brwsr.loadClass(clazz);");
+        sb.append("\n  var before = c[lazyMethod].toString().indexOf('stub.impl') >= 0;");
+        sb.append("\n  var res = c[method]();");
+        sb.append("\n  var after = c[lazyMethod].toString().indexOf('stub.impl') >= 0;");
+        sb.append("\n  return before + ':' + res + ':' + after;");
+        sb.append("\n}");
+        
+        sb.append("\nfunction patched(clazz, method, base, baseMethod) {");
+        sb.append("\n  if (!data.bck2brwsr) data.bck2brwsr = bck2brwsr(function(name) { return loader.get(name); });");
+        sb.append("\n  var res = data.bck2brwsr.loadClass(clazz)[method]();");
+        sb.append("\n  var b = data.bck2brwsr.loadClass(base);");
+        sb.append("\n  return res + ':' + (b[baseMethod].toString().indexOf('stub.impl') >= 0);");
+        sb.append("\n}");
+        
+        sb.append("\nfunction eager(clazz, method, lazyMethod) {");
+        sb.append("\n  bck2brwsr.lazyMethods = false;");
+        sb.append("\n  try {");
+        sb.append("\n    var vm = bck2brwsr(function(name) { return loader.get(name); });");
+        sb.append("\n  } finally {");
+        sb.append("\n    delete bck2brwsr.lazyMethods;");
+        sb.append("\n  }");
+        sb.append("\n  var c = vm.loadClass(clazz);");
+        sb.append("\n  var stub = c[lazyMethod].toString().indexOf('stub.impl') >= 0;");
+        sb.append("\n  return stub + ':' + c[method]();");
+        sb.append("\n}");
+        
         sb.append("\nfunction checkKO() {");
         sb.append("\n  return ko !== null;");
         sb.append("\n}");
@@ -78,6 +106,44 @@ public class VMLazyTest {
         assertEquals(res, true, "KO is defined on a global level");
     }
 
+    @Test public void methodCompiledOnFirstCall() throws Exception {
+        assertExec("Stub replaced by the method", "lazy", "true:55:false",
+            LazyMethods.class.getName(), "sumTen__I", "sumTo__II"
+        );
+    }
+
+    @Test public void lazyMethodsCallEachOther() throws Exception {
+        assertExec("Constructor and instance method compiled", "lazy", "true:85:false",
+            LazyMethods.class.getName(), "sumAll__I", "total__I"
+        );
+    }
+
+    @Test public void lazyMethodInvokedViaReflection() throws Exception {
+        assertExec("Reflection finds the stub", "lazy", "true:2:false",
+            LazyMethods.class.getName(), "viaReflection__I", "odd__I"
+        );
+    }
+
+    @Test public void inheritedMethodAfterPrototypeIsPatched() throws Exception {
+        assertExec("Subclass sees the compiled method", "patched", "55566:false",
+            LazyMethods.class.getName(), "inheritedAfterPatch__I",
+            LazyMethods.Base.class.getName(), "count__II"
+        );
+    }
+
+    @Test public void inheritedMethodPatchesItsClass() throws Exception {
+        assertExec("Call on subclass compiles the method", "patched", "10010:false",
+            LazyMethods.class.getName(), "inheritedBeforePatch__I",
+            LazyMethods.Base.class.getName(), "count__II"
+        );
+    }
+
+    @Test public void lazyMethodsCanBeTurnedOff() throws Exception {
+        assertExec("No stubs", "eager", "false:55",
+            LazyMethods.Eager.class.getName(), "sumTen__I", "sumTo__II"
+        );
+    }
+
     private static void assertExec(String msg, String methodName, Object expRes, Object... args) throws Exception {
         Object ret = null;
         try {